@@ -0,0 +1,95 @@
+package com.BaPB;
+
+import net.runelite.api.coords.WorldPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-tick lobby lookup: the HashMap scan Lobby used to do against the precomputed tile grid,
+ * over a mix of points inside lobbies, between them and far away from BA.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LobbyBenchmark
+{
+    private final Lobby lobby = new Lobby();
+    private final Map<Integer, Lobby.LobbyRegion> legacyRegions = new HashMap<>();
+    private WorldPoint[] points;
+
+    @Setup
+    public void setUp()
+    {
+        legacyRegions.put(1, new Lobby.LobbyRegion(2576, 5291));
+        legacyRegions.put(2, new Lobby.LobbyRegion(2584, 5291));
+        legacyRegions.put(3, new Lobby.LobbyRegion(2595, 5291));
+        legacyRegions.put(4, new Lobby.LobbyRegion(2603, 5291));
+        legacyRegions.put(5, new Lobby.LobbyRegion(2576, 5281));
+        legacyRegions.put(6, new Lobby.LobbyRegion(2584, 5281));
+        legacyRegions.put(7, new Lobby.LobbyRegion(2595, 5281));
+        legacyRegions.put(8, new Lobby.LobbyRegion(2603, 5281));
+        legacyRegions.put(9, new Lobby.LobbyRegion(2576, 5271));
+        legacyRegions.put(10, new Lobby.LobbyRegion(2584, 5271));
+
+        points = new WorldPoint[] {
+                new WorldPoint(2579, 5294, 0), // lobby 1
+                new WorldPoint(2606, 5284, 0), // lobby 8
+                new WorldPoint(2587, 5273, 0), // lobby 10
+                new WorldPoint(2593, 5285, 0), // between lobbies
+                new WorldPoint(1884, 5460, 0), // in a wave instance
+                new WorldPoint(3222, 3218, 0), // Lumbridge
+        };
+    }
+
+    @Benchmark
+    public void mapScan(Blackhole bh)
+    {
+        for (WorldPoint point : points)
+        {
+            int id = 0;
+            for (Map.Entry<Integer, Lobby.LobbyRegion> entry : legacyRegions.entrySet())
+            {
+                if (entry.getValue().contains(point))
+                {
+                    id = entry.getKey();
+                    break;
+                }
+            }
+            bh.consume(id);
+        }
+    }
+
+    @Benchmark
+    public void gridIndex(Blackhole bh)
+    {
+        for (WorldPoint point : points)
+        {
+            bh.consume(lobby.getLobbyId(point));
+        }
+    }
+
+    @Benchmark
+    public void relativeCoordinates(Blackhole bh)
+    {
+        for (WorldPoint point : points)
+        {
+            bh.consume(lobby.getRelativeCoordinates(point, lobby.getLobbyId(point)));
+        }
+    }
+}
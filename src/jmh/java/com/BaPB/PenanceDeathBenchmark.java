@@ -0,0 +1,82 @@
+package com.BaPB;
+
+import net.runelite.client.util.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Penance death message parsing: removeTags/split/parseDouble as checkNpcDeaths used to do it
+ * against the single pass {@link PenanceDeathParser}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PenanceDeathBenchmark
+{
+    private final String[] messages = {
+            "All of the Penance Healers have been killed!<col=ef1020> 34.2s",
+            "All of the Penance Rangers have been killed!<col=ef1020> 12.6s",
+            "<col=ef1020>All of the Penance Fighters have been killed! 8s</col>",
+            "All of the Penance Runners have been killed!<col=ef1020> 105.0s",
+    };
+
+    private final PenanceDeathParser parser = new PenanceDeathParser();
+
+    @Benchmark
+    public void splitParse(Blackhole bh)
+    {
+        for (String message : messages)
+        {
+            String[] parts = Text.removeTags(message).split(" ");
+            if (parts.length < 5)
+            {
+                continue;
+            }
+
+            String deathTimeStr = parts[parts.length - 1];
+            if (deathTimeStr.endsWith("s"))
+            {
+                deathTimeStr = deathTimeStr.substring(0, deathTimeStr.length() - 1);
+            }
+
+            double deathTime;
+            try
+            {
+                deathTime = Double.parseDouble(deathTimeStr);
+            }
+            catch (NumberFormatException e)
+            {
+                continue;
+            }
+
+            bh.consume(parts[4]);
+            bh.consume(deathTime);
+        }
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole bh)
+    {
+        for (String message : messages)
+        {
+            if (parser.parse(message))
+            {
+                bh.consume(parser.getNpc());
+                bh.consume(parser.getSeconds());
+            }
+        }
+    }
+}
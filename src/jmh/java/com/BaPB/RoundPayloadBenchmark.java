@@ -0,0 +1,230 @@
+package com.BaPB;
+
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonWriter;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of serializing one finished round for submission: the reflective Gson path the plugin
+ * used to take (object graph, then toJson for the body and again for the debug log) against
+ * capturing a {@link RoundSnapshot} and streaming it through {@link RoundPayloadEncoder}.
+ * Run with the gc profiler to compare gc.alloc.rate.norm (bytes allocated per round).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundPayloadBenchmark
+{
+    private final Gson gson = new Gson();
+    private final Map<String, String> team = new LinkedHashMap<>();
+    private final Timers timers = new Timers();
+
+    @Setup
+    public void setUp()
+    {
+        team.put("Leader Name", "Main Attacker");
+        team.put("Second Att", "2nd Attacker");
+        team.put("Some Healer", "Healer");
+        team.put("Egg Boi", "Collector");
+        team.put("Def Player", "Defender");
+
+        timers.startRound();
+        for (int wave = 1; wave <= 10; wave++)
+        {
+            timers.updateState(0, wave, false, null);
+            timers.startQS(wave);
+            tick(3 + wave);
+            timers.updateState(wave, 0, true, null);
+            tick(40 + wave * 5);
+            timers.setRangerDeath(wave, 12.6 + wave);
+            timers.setFighterDeath(wave, 18.0 + wave);
+            timers.setRunnerDeath(wave, 22.2 + wave);
+            timers.setHealerDeath(wave, 30.6 + wave);
+        }
+        timers.setQueenSpawnTime(44.4);
+        timers.updateState(0, 0, false, null);
+    }
+
+    private void tick(int ticks)
+    {
+        for (int i = 0; i < ticks; i++)
+        {
+            timers.onGameTick();
+        }
+    }
+
+    @Benchmark
+    public byte[] reflectiveGson()
+    {
+        LegacyPayload payload = LegacyPayload.build(team, "five_man", timers, true, "Leader Name", null, "US");
+        byte[] body = gson.toJson(payload).getBytes(StandardCharsets.UTF_8);
+        // The old submit path serialized the payload a second time for log.debug
+        String logged = gson.toJson(payload);
+        return logged.length() > body.length ? null : body;
+    }
+
+    @Benchmark
+    public byte[] streamingEncoder() throws IOException
+    {
+        Buffer buffer = new Buffer();
+        try (JsonWriter out = new JsonWriter(new OutputStreamWriter(buffer.outputStream(), StandardCharsets.UTF_8)))
+        {
+            RoundPayloadEncoder.write(out, RoundSnapshot.capture(team, "five_man", timers, true, "Leader Name", "US"), null);
+        }
+        return buffer.readByteArray();
+    }
+
+    /**
+     * Copy of the object graph BaPBService serialized reflectively before the streaming encoder.
+     */
+    private static class LegacyPayload
+    {
+        @SerializedName("format")
+        final String format;
+        @SerializedName("round_time")
+        final double roundTime;
+        @SerializedName("scroller")
+        final boolean scroller;
+        @SerializedName("submitted_by")
+        final String submittedBy;
+        @SerializedName("world_region")
+        final String worldRegion;
+        @SerializedName("players")
+        final List<PlayerEntry> players;
+        @SerializedName("wave_data")
+        final List<WaveEntry> waveData;
+
+        LegacyPayload(String format, double roundTime, String submittedBy, boolean scroller, String worldRegion, List<PlayerEntry> players, List<WaveEntry> waveData)
+        {
+            this.format = format;
+            this.roundTime = roundTime;
+            this.submittedBy = submittedBy;
+            this.scroller = scroller;
+            this.worldRegion = worldRegion;
+            this.players = players;
+            this.waveData = waveData;
+        }
+
+        static LegacyPayload build(Map<String, String> currentTeam, String roundFormat, Timers timers, boolean scroller, String submittedBy, String userUuid, String worldRegion)
+        {
+            List<PlayerEntry> players = new ArrayList<>();
+            for (Map.Entry<String, String> e : currentTeam.entrySet())
+            {
+                String uuid = (userUuid != null && e.getKey().equals(submittedBy)) ? userUuid : null;
+                players.add(new PlayerEntry(e.getKey(), e.getValue(), uuid));
+            }
+
+            List<WaveEntry> waveData = new ArrayList<>();
+            for (Map.Entry<Integer, Timers.WaveData> entry : timers.getWaveData().entrySet())
+            {
+                Timers.WaveData data = entry.getValue();
+                Lobby.RelativePoint rp = data.getRelativePoint();
+                waveData.add(new WaveEntry(
+                        entry.getKey(),
+                        data.getWaveTimer().getElapsedSeconds(scroller, false),
+                        data.getQsTimer().getRoundTicks(),
+                        data.isGoodPremove(),
+                        data.getLobbyCount() > 1,
+                        rp == null ? null : rp.getX(),
+                        rp == null ? null : rp.getY(),
+                        boxed(data.getRangerDeathTime()),
+                        boxed(data.getFighterDeathTime()),
+                        boxed(data.getRunnerDeathTime()),
+                        boxed(data.getHealerDeathTime()),
+                        boxed(data.getQueenSpawnTime())));
+            }
+
+            return new LegacyPayload(roundFormat, timers.getRoundTimer().getElapsedSeconds(scroller), submittedBy, scroller, worldRegion, players, waveData);
+        }
+    }
+
+    private static Double boxed(double seconds)
+    {
+        return Double.isNaN(seconds) ? null : seconds;
+    }
+
+    private static class PlayerEntry
+    {
+        @SerializedName("character_name")
+        final String characterName;
+        @SerializedName("role")
+        final String role;
+        @SerializedName("uuid_key")
+        final String uuidKey;
+
+        PlayerEntry(String characterName, String role, String uuidKey)
+        {
+            this.characterName = characterName;
+            this.role = role;
+            this.uuidKey = uuidKey;
+        }
+    }
+
+    private static class WaveEntry
+    {
+        @SerializedName("wave_number")
+        final int waveNumber;
+        @SerializedName("wave_time")
+        final double waveTime;
+        @SerializedName("qs_time")
+        final int qsTime;
+        @SerializedName("good_premove")
+        final boolean goodPremove;
+        @SerializedName("reset")
+        final Boolean reset;
+        @SerializedName("x_qs_spawn")
+        final Integer xSpawn;
+        @SerializedName("y_qs_spawn")
+        final Integer ySpawn;
+        @SerializedName("ranger_death_time")
+        final Double rangerDeathTime;
+        @SerializedName("fighter_death_time")
+        final Double fighterDeathTime;
+        @SerializedName("runner_death_time")
+        final Double runnerDeathTime;
+        @SerializedName("healer_death_time")
+        final Double healerDeathTime;
+        @SerializedName("queen_spawn_time")
+        final Double queenSpawnTime;
+
+        WaveEntry(int waveNumber, double waveTime, int qsTime, boolean goodPremove, boolean reset, Integer xSpawn, Integer ySpawn,
+                  Double rangerDeathTime, Double fighterDeathTime, Double runnerDeathTime, Double healerDeathTime, Double queenSpawnTime)
+        {
+            this.waveNumber = waveNumber;
+            this.waveTime = waveTime;
+            this.qsTime = qsTime;
+            this.goodPremove = goodPremove;
+            this.reset = reset;
+            this.xSpawn = xSpawn;
+            this.ySpawn = ySpawn;
+            this.rangerDeathTime = rangerDeathTime;
+            this.fighterDeathTime = fighterDeathTime;
+            this.runnerDeathTime = runnerDeathTime;
+            this.healerDeathTime = healerDeathTime;
+            this.queenSpawnTime = queenSpawnTime;
+        }
+    }
+}
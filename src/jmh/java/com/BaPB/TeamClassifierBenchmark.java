@@ -0,0 +1,108 @@
+package com.BaPB;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Format classification of a scanned team: the if chain and role string building the scan
+ * used to do against the {@link TeamClassifier} table, for a leech, five man, duo heal and
+ * unknown team with the local player in slot 2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TeamClassifierBenchmark
+{
+    private static final int A = 20561;
+    private static final int C = 20563;
+    private static final int D = 20566;
+    private static final int H = 20569;
+    private static final int LOCAL_SLOT = 2;
+
+    private final TeamScanner.Scan[] scans = {
+            scan(A, C, H, H, D),
+            scan(A, A, H, C, D),
+            scan(A, H, H, C, D),
+            scan(A, D, H, C, C),
+    };
+
+    private static TeamScanner.Scan scan(int... icons)
+    {
+        return new TeamScanner.Scan(new String[]{"a", "b", "c", "d", "e"}, icons, LOCAL_SLOT);
+    }
+
+    @Benchmark
+    public void ifChain(Blackhole bh)
+    {
+        for (TeamScanner.Scan scan : scans)
+        {
+            int leader = scan.getIcon(0);
+            int player1 = scan.getIcon(1);
+            int player2 = scan.getIcon(2);
+            int player3 = scan.getIcon(3);
+            int player4 = scan.getIcon(4);
+            String role = legacyRoleName(scan.getIcon(LOCAL_SLOT));
+            String format;
+
+            if (leader == A && player1 == C && player2 == H && player4 == D)
+            {
+                role = "Leech " + role;
+                format = "leech";
+            }
+            else if (leader == A && player1 == A && player2 == H && player3 == C && player4 == D)
+            {
+                format = "five_man";
+            }
+            else if (leader == A && player1 == H && player2 == H && player3 == C && player4 == D)
+            {
+                role = "DH " + role;
+                format = "duo_heal";
+            }
+            else
+            {
+                format = null;
+            }
+
+            if ("duo_heal".equals(format) && LOCAL_SLOT == 2)
+            {
+                role = "DH Main Healer";
+            }
+
+            bh.consume(format);
+            bh.consume(role);
+        }
+    }
+
+    @Benchmark
+    public void table(Blackhole bh)
+    {
+        for (TeamScanner.Scan scan : scans)
+        {
+            TeamClassifier.Composition team = TeamClassifier.classify(scan);
+            bh.consume(team != null ? team.getFormat() : null);
+            bh.consume(team != null ? team.getPlayerRole(LOCAL_SLOT) : null);
+        }
+    }
+
+    private static String legacyRoleName(int icon)
+    {
+        if (icon == A) return "Attacker";
+        if (icon == D) return "Defender";
+        if (icon == C) return "Collector";
+        if (icon == H) return "Healer";
+        return "";
+    }
+}
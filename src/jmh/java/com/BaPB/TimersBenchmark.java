@@ -0,0 +1,78 @@
+package com.BaPB;
+
+import net.runelite.api.coords.WorldPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-tick timer work: a single {@link Timers#onGameTick} with every wave timer running, and the
+ * updateState/onGameTick pair the plugin runs each tick, over a whole simulated round.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimersBenchmark
+{
+    private static final int LOBBY_TICKS = 20;
+    private static final int WAVE_TICKS = 60;
+
+    private final Timers running = new Timers();
+    private final Timers round = new Timers();
+    private final Lobby.RelativePoint spawn = new Lobby().getRelativeCoordinates(new WorldPoint(2579, 5294, 0), 1);
+
+    @Setup
+    public void setUp()
+    {
+        running.startRound();
+        for (int wave = 1; wave <= Timers.MAX_WAVE; wave++)
+        {
+            running.startWave(wave);
+            running.startQS(wave);
+        }
+    }
+
+    @Benchmark
+    public Timers onGameTick()
+    {
+        running.onGameTick();
+        return running;
+    }
+
+    /**
+     * One full round, {@code (LOBBY_TICKS + WAVE_TICKS) * 10} ticks.
+     */
+    @Benchmark
+    public double round()
+    {
+        round.resetAll();
+        round.startRound();
+        for (int wave = 1; wave <= Timers.MAX_WAVE; wave++)
+        {
+            for (int tick = 0; tick < LOBBY_TICKS; tick++)
+            {
+                round.updateState(0, wave, false, spawn);
+                round.onGameTick();
+            }
+            for (int tick = 0; tick < WAVE_TICKS; tick++)
+            {
+                round.updateState(wave, 0, true, null);
+                round.onGameTick();
+            }
+        }
+        round.stopAll();
+        return round.getRoundSeconds(true);
+    }
+}
@@ -0,0 +1,198 @@
+package com.BaPB;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Appends lines to a file from a dedicated thread.
+ *
+ * Callers only put the line on a bounded queue and never wait for disk, a full queue drops the
+ * line. The writer thread takes whatever has queued up since its last write and writes it as
+ * one batch with a single flush. The file is opened on the first write and asked for again
+ * before every batch, so a writer can roll over to a new file, e.g. one per day.
+ */
+@Slf4j
+public class AsyncLineWriter
+{
+    private static final int QUEUE_CAPACITY = 1024;
+
+    // Queued by close() to wake the writer thread, which stops once everything before it is written
+    private static final String END = new String("END");
+
+    private final Supplier<File> file;
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread thread;
+
+    // Only touched by the writer thread
+    private File openFile;
+    private Writer writer;
+
+    private volatile boolean closed;
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Starts the writer thread. The file supplier is called on that thread before every batch.
+     */
+    public AsyncLineWriter(String name, Supplier<File> file)
+    {
+        this.file = file;
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a line, without the line separator. Returns false if it was dropped because the
+     * writer is closed or too far behind.
+     */
+    public boolean offer(String line)
+    {
+        if (closed)
+        {
+            return false;
+        }
+
+        if (!queue.offer(line))
+        {
+            if (dropped.getAndIncrement() % QUEUE_CAPACITY == 0)
+            {
+                log.warn("{} is falling behind, dropped a line", thread.getName());
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops taking lines and returns right away. The writer thread writes everything queued so
+     * far, closes the file and stops.
+     */
+    public void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+
+        // A full queue keeps the writer thread busy until it sees it is closed
+        queue.offer(END);
+    }
+
+    private void run()
+    {
+        List<String> batch = new ArrayList<>();
+        try
+        {
+            while (true)
+            {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+
+                boolean end = write(batch);
+                batch.clear();
+                if (end || closed && queue.isEmpty())
+                {
+                    break;
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            closeFile();
+        }
+    }
+
+    /**
+     * Writes a batch with one flush, returns whether it ended with the close marker.
+     */
+    private boolean write(List<String> batch)
+    {
+        boolean end = false;
+        File target = null;
+        try
+        {
+            for (String line : batch)
+            {
+                //noinspection StringEquality
+                if (line == END)
+                {
+                    end = true;
+                    break;
+                }
+
+                if (target == null)
+                {
+                    target = file.get();
+                    if (writer == null || !target.equals(openFile))
+                    {
+                        openFile(target);
+                    }
+                }
+                writer.write(line);
+                writer.write(System.lineSeparator());
+            }
+
+            if (writer != null)
+            {
+                writer.flush();
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to write to {}", openFile, e);
+            closeFile();
+        }
+        return end;
+    }
+
+    private void openFile(File target) throws IOException
+    {
+        closeFile();
+
+        File parent = target.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+        {
+            throw new IOException("Unable to create " + parent);
+        }
+
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(target, true), StandardCharsets.UTF_8));
+        openFile = target;
+    }
+
+    private void closeFile()
+    {
+        if (writer == null)
+        {
+            return;
+        }
+
+        try
+        {
+            writer.close();
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to close {}", openFile, e);
+        }
+        writer = null;
+        openFile = null;
+    }
+}
@@ -28,6 +28,8 @@ package com.BaPB;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.Range;
+import net.runelite.client.config.Units;
 
 @ConfigGroup("BaPb")
 public interface
@@ -56,7 +58,7 @@ BaPBConfig extends Config
 			position = 3,
 		keyName = "log",
 		name = "logger",
-		description = "Allows to log your times to a file in your .runelite file turn off/on to update file"
+		description = "Logs your times to barbarian-assault-pbs.csv in your .runelite folder"
 	)
 	default boolean Logging() {return false;}
 
@@ -86,4 +88,76 @@ BaPBConfig extends Config
 	)
 	default String uuid_key() { return null; }
 
+	@ConfigItem(
+			position = 7,
+			keyName = "batch_runs",
+			name = "Batch Submissions",
+			description = "Submits finished runs in compressed batches instead of one request per run. Only used when \"Submit Runs\" is enabled."
+	)
+	default boolean BatchSubmissions() { return false; }
+
+	@Range(
+			min = 2,
+			max = 100
+	)
+	@ConfigItem(
+			position = 8,
+			keyName = "batch_size",
+			name = "Max Batch Size",
+			description = "The most runs sent in a single batch. Only used when \"Batch Submissions\" is enabled."
+	)
+	default int BatchSize() { return 25; }
+
+	@Units(Units.SECONDS)
+	@Range(
+			max = 600
+	)
+	@ConfigItem(
+			position = 9,
+			keyName = "batch_linger",
+			name = "Max Batch Wait",
+			description = "How long a finished run waits for more runs to batch with. Only used when \"Batch Submissions\" is enabled."
+	)
+	default int BatchLinger() { return 30; }
+
+	@ConfigItem(
+			position = 10,
+			keyName = "run_history",
+			name = "Run History",
+			description = "Keeps every finished run with its wave splits in a local history under your .runelite folder"
+	)
+	default boolean RunHistory() { return false; }
+
+	@ConfigItem(
+			position = 11,
+			keyName = "split_log",
+			name = "Wave Split Log",
+			description = "Writes the splits of every wave as JSON lines to a daily file in the barbarian-assault-splits folder in your .runelite folder"
+	)
+	default boolean SplitLog() { return false; }
+
+	@ConfigItem(
+			position = 12,
+			keyName = "prefetch_pbs",
+			name = "Prefetch Team PBs",
+			description = "Looks up the PBs of your team in the background once the scroll is read, so !ba lookups for them show instantly"
+	)
+	default boolean PrefetchPbs() { return false; }
+
+	@ConfigItem(
+			position = 13,
+			keyName = "record_rounds",
+			name = "Record Rounds",
+			description = "Saves the tick by tick inputs of every round to the barbarian-assault-recordings folder in your .runelite folder, keeping the most recent 32 MB"
+	)
+	default boolean RecordRounds() { return false; }
+
+	@ConfigItem(
+			position = 14,
+			keyName = "latency",
+			name = "Measure Latency",
+			description = "Times the plugin's event handlers and !ba commands, type ::balatency to see p50/p99/max or ::balatency reset to start over"
+	)
+	default boolean Latency() { return false; }
+
 }
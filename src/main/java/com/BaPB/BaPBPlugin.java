@@ -28,24 +28,28 @@ package com.BaPB;
 import com.google.inject.Provides;
 import java.io.*;
 import java.time.Instant;
+import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.Map;
-import java.util.HashMap;
 import javax.inject.Inject;
-import lombok.AccessLevel;
-import lombok.Getter;
 import net.runelite.api.*;
 import net.runelite.api.coords.WorldPoint;
 import net.runelite.api.events.ChatMessage;
+import net.runelite.api.events.CommandExecuted;
+import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.GameTick;
+import net.runelite.api.events.ItemContainerChanged;
+import net.runelite.api.events.VarbitChanged;
 import net.runelite.api.events.WidgetClosed;
 import net.runelite.api.events.WidgetLoaded;
 import net.runelite.api.gameval.InterfaceID;
 import net.runelite.api.widgets.Widget;
+import net.runelite.client.callback.ClientThread;
 import net.runelite.client.chat.*;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.events.ChatInput;
+import net.runelite.client.events.ConfigChanged;
+import net.runelite.client.events.RuneScapeProfileChanged;
 import net.runelite.client.game.WorldService;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
@@ -68,60 +72,69 @@ import static net.runelite.client.RuneLite.RUNELITE_DIR;
 @Slf4j
 public class BaPBPlugin extends Plugin
 {
-	private static final int BA_WAVE_NUM_INDEX = 2;
-	private static final int START_WAVE = 1;
-    private static final int PREMOVE_Y_THRESHOLD = 5300;
-	private static final String ENDGAME_REWARD_NEEDLE_TEXT = "<br>5";
-	private double currentpb; //This is to load overall pb
-	private double rolecurrentpb; //This is to load role specific pb's and gets set when the role is determined
+	private static final String HISTORY_DIRECTORY = "barbarian-assault-history";
+	private static final String CSV_LOG_FILE = "barbarian-assault-pbs.csv";
+	private static final String CONFIG_GROUP = "BaPb";
+	private static final String LOGGING_KEY = "log";
+	private static final String SPLIT_LOG_KEY = "split_log";
+	private static final String SPLIT_LOG_DIRECTORY = "barbarian-assault-splits";
+	private static final String RUN_HISTORY_KEY = "run_history";
+	private static final String RECORDER_KEY = "record_rounds";
+	private static final String RECORDING_DIRECTORY = "barbarian-assault-recordings";
+	private static final String LATENCY_KEY = "latency";
+	private static final String LATENCY_COMMAND = "balatency";
 	private static final String BA_COMMAND_STRING = "!ba";
 
-    // Constants for role-specific widget group IDs
-    private static final int BA_ATTACKER_GROUP_ID = 485;
-    private static final int BA_COLLECTOR_GROUP_ID = 486;
-    private static final int BA_DEFENDER_GROUP_ID = 487;
-    private static final int BA_HEALER_GROUP_ID = 488;
+    // Barbarian Assault in-game varbit (IN_GAME_BA in the old Varbits class), 1 while the
+    // player is inside a wave and 0 in the lobbies and outside the minigame
+    private static final int BA_IN_GAME_VARBIT = 3923;
 
 	private int gc;
 
-	@Getter(AccessLevel.PACKAGE)
-	private int inGameBit = 0;
-    private int currentWave = 0;
-    private Timers timers = new Timers();
-    private Lobby lobby = new Lobby();
-	private String round_role;
+    // Detection, timing and classification, fed from the events below
+    private final RoundTracker tracker = new RoundTracker(new RoundTracker.Source()
+    {
+        @Override
+        public int getTickCount()
+        {
+            return client.getTickCount();
+        }
+
+        @Override
+        public WorldPoint getLocalPosition()
+        {
+            Player local = client.getLocalPlayer();
+            return local != null ? local.getWorldLocation() : null;
+        }
+
+        @Override
+        public boolean isInstanced()
+        {
+            return client.getTopLevelWorldView().isInstance();
+        }
+    });
+    private TeamScanner teamScanner = new TeamScanner();
+    // Only touched on the executor, null while disabled or when it could not be opened
+    private volatile RunHistory runHistory;
 	private Boolean scanning;
-	private int round_roleID;
-	private String roundFormat;
-    private Map<String, String> currentTeam = new HashMap<>();
-    private Boolean isLeader = false;
 	//defines all of my specific widgets and icon names could I do it better yes, but like it works
-	private Integer BaRoleWidget = 256;
+	private Integer BaRoleWidget = TeamScanner.GROUP_ID;
 	private Integer BaScrollWidget = 159;
-	private Integer leaderID = 8;
-	private Integer player1ID = 9;
-	private Integer player2ID = 10;
-	private Integer player3ID = 11;
-	private Integer player4ID = 12;
-	private Integer leadericonID = 18;
-	private Integer player1iconID = 19;
-	private Integer player2iconID = 20;
-	private Integer player3iconID = 21;
-	private Integer player4iconID = 22;
-	private Integer attackerIcon = 20561;
-	private Integer defenderIcon = 20566;
-	private Integer collectorIcon = 20563;
-	private Integer healerIcon = 20569;
-    private Integer emptyIcon = -1;
-	private PrintWriter out;
-	private BufferedWriter bw;
-	private FileWriter fw;
+	// Only running while logging is enabled
+	private volatile AsyncLineWriter csvLog;
+	private volatile WaveSplitLog splitLog;
+	private volatile RoundRecorder recorder;
+	private final HandlerLatencies latencies = new HandlerLatencies();
+	private int lastSplitWave;
 
 
 
 	@Inject
 	private Client client;
 
+	@Inject
+	private ClientThread clientThread;
+
 	@Inject
 	private ChatMessageManager chatMessageManager;
 
@@ -135,7 +148,10 @@ public class BaPBPlugin extends Plugin
     private BaPBService service;
 
 	@Inject
-	private ConfigManager configManager;
+	private PersonalBests personalBests;
+
+	@Inject
+	private PbLookupCache pbCache;
 
 	@Inject
 	private ChatCommandManager chatCommandManager;
@@ -160,56 +176,314 @@ public class BaPBPlugin extends Plugin
 	@Override
 	protected void startUp() throws Exception
 	{
-		File logFile = new File(RUNELITE_DIR, "barbarian-assault-pbs.csv");
-		fw = new FileWriter(logFile, true);
-		bw = new BufferedWriter(fw);
-		out = new PrintWriter(bw);
-		//configManager.setRSProfileConfiguration("BaPB", "Recent", roleToDouble("Leech " + "Defender"));
+		if (config.Logging())
+		{
+			startCsvLog();
+		}
+		if (config.SplitLog())
+		{
+			startSplitLog();
+		}
+		if (config.RecordRounds())
+		{
+			startRecorder();
+		}
 
-		chatCommandManager.registerCommandAsync(BA_COMMAND_STRING, this::baLookup, this::baSubmit);
+		latencies.setEnabled(config.Latency());
+		chatCommandManager.registerCommandAsync(BA_COMMAND_STRING,
+			latencies.timed(HandlerLatencies.Handler.BA_LOOKUP, this::baLookup),
+			latencies.timedInput(HandlerLatencies.Handler.BA_SUBMIT, this::baSubmit));
+		service.startUp();
+		personalBests.load();
+		if (config.RunHistory())
+		{
+			startRunHistory();
+		}
 		scanning = false;
 		str = new StringBuilder();
-        currentTeam.clear();
-        timers.resetAll();
+        tracker.reset();
+        clientThread.invoke(this::refreshInGameState);
 	}
 
 	@Override
 	protected void shutDown() throws Exception
 	{
 		chatCommandManager.unregisterCommand(BA_COMMAND_STRING);
+		service.shutDown();
+		personalBests.shutDown();
+		pbCache.shutDown();
+		stopRunHistory();
 		scanning = false;
-		shutDownActions();
-		out.close();
-		bw.close();
-		fw.close();
+		stopCsvLog();
+		stopSplitLog();
+		stopRecorder();
+		latencies.setEnabled(false);
+		latencies.reset();
 		str = new StringBuilder();
-        currentTeam.clear();
-        timers.resetAll();
+        tracker.reset();
 	}
 
-	private void shutDownActions() throws IOException
+	// Opened and closed on the executor, in order with the rounds being recorded
+	private void startRunHistory()
 	{
-		out.flush();
-		bw.flush();
-		fw.flush();
+		executor.execute(() ->
+		{
+			if (runHistory != null)
+			{
+				return;
+			}
+
+			RunHistory history = new RunHistory(new File(RUNELITE_DIR, HISTORY_DIRECTORY));
+			try
+			{
+				history.open();
+				runHistory = history;
+			}
+			catch (IOException e)
+			{
+				log.warn("Unable to open the run history", e);
+				history.close();
+			}
+		});
+	}
+
+	private void stopRunHistory()
+	{
+		executor.execute(() ->
+		{
+			RunHistory history = runHistory;
+			runHistory = null;
+			if (history != null)
+			{
+				history.close();
+			}
+		});
+	}
+
+	private void recordHistory(RoundSnapshot round, String role)
+	{
+		final long now = System.currentTimeMillis();
+		executor.execute(() ->
+		{
+			RunHistory history = runHistory;
+			if (history == null)
+			{
+				return;
+			}
+
+			try
+			{
+				history.append(round, role, now);
+			}
+			catch (IOException e)
+			{
+				log.warn("Unable to record the round in the run history", e);
+			}
+		});
+	}
+
+	private synchronized void startCsvLog()
+	{
+		if (csvLog == null)
+		{
+			File logFile = new File(RUNELITE_DIR, CSV_LOG_FILE);
+			csvLog = new AsyncLineWriter("BaPB CSV logger", () -> logFile);
+		}
+	}
+
+	private synchronized void stopCsvLog()
+	{
+		if (csvLog != null)
+		{
+			csvLog.close();
+			csvLog = null;
+		}
+	}
+
+	private void logWaveSplit(int wave)
+	{
+		WaveSplitLog splits = splitLog;
+		Timers.WaveData data = tracker.getTimers().getWaveData(wave);
+		// The last wave is logged at round end, before leaving it
+		if (splits == null || data == null || wave == lastSplitWave)
+		{
+			return;
+		}
+
+		lastSplitWave = wave;
+		splits.write(wave, data, tracker.getRoundFormat(), tracker.getRoundRole(), tracker.isLeader());
+	}
+
+	private synchronized void startSplitLog()
+	{
+		if (splitLog == null)
+		{
+			splitLog = new WaveSplitLog(new File(RUNELITE_DIR, SPLIT_LOG_DIRECTORY));
+		}
+	}
+
+	private synchronized void stopSplitLog()
+	{
+		if (splitLog != null)
+		{
+			splitLog.close();
+			splitLog = null;
+		}
+	}
+
+	private synchronized void startRecorder()
+	{
+		if (recorder == null)
+		{
+			recorder = new RoundRecorder(new File(RUNELITE_DIR, RECORDING_DIRECTORY), executor);
+		}
+	}
+
+	private synchronized void stopRecorder()
+	{
+		if (recorder != null)
+		{
+			recorder.close();
+			recorder = null;
+		}
+	}
+
+	@Subscribe
+	public void onConfigChanged(ConfigChanged event)
+	{
+		if (!CONFIG_GROUP.equals(event.getGroup()))
+		{
+			return;
+		}
+
+		if (LOGGING_KEY.equals(event.getKey()))
+		{
+			if (config.Logging())
+			{
+				startCsvLog();
+			}
+			else
+			{
+				stopCsvLog();
+			}
+		}
+		else if (SPLIT_LOG_KEY.equals(event.getKey()))
+		{
+			if (config.SplitLog())
+			{
+				startSplitLog();
+			}
+			else
+			{
+				stopSplitLog();
+			}
+		}
+		else if (RUN_HISTORY_KEY.equals(event.getKey()))
+		{
+			if (config.RunHistory())
+			{
+				startRunHistory();
+			}
+			else
+			{
+				stopRunHistory();
+			}
+		}
+		else if (RECORDER_KEY.equals(event.getKey()))
+		{
+			if (config.RecordRounds())
+			{
+				startRecorder();
+			}
+			else
+			{
+				stopRecorder();
+			}
+		}
+		else if (LATENCY_KEY.equals(event.getKey()))
+		{
+			latencies.setEnabled(config.Latency());
+		}
+	}
+
+	@Subscribe
+	public void onCommandExecuted(CommandExecuted event)
+	{
+		if (!LATENCY_COMMAND.equals(event.getCommand()))
+		{
+			return;
+		}
+
+		if (event.getArguments().length > 0 && "reset".equals(event.getArguments()[0]))
+		{
+			latencies.reset();
+			consoleMessage("Barbarian Assault latencies reset");
+			return;
+		}
+
+		List<String> report = latencies.report();
+		if (report.isEmpty())
+		{
+			consoleMessage(latencies.isEnabled() ? "No Barbarian Assault latencies measured yet" : "Enable Measure Latency in the BaPB config first");
+		}
+		for (String line : report)
+		{
+			log.debug("Latency {}", line);
+			consoleMessage(line);
+		}
+	}
+
+	private void consoleMessage(String message)
+	{
+		chatMessageManager.queue(QueuedMessage.builder()
+			.type(ChatMessageType.CONSOLE)
+			.runeLiteFormattedMessage(message)
+			.build());
 	}
 
 	@Subscribe
-	public void onWidgetLoaded(WidgetLoaded event) throws IOException//exception required to run .flush()
+	public void onWidgetLoaded(WidgetLoaded event)
+	{
+		final long start = latencies.start();
+		try
+		{
+			handleWidgetLoaded(event);
+		}
+		finally
+		{
+			latencies.stop(HandlerLatencies.Handler.WIDGET_LOADED, start);
+		}
+	}
+
+	private void handleWidgetLoaded(WidgetLoaded event)
 	{
+		tracker.setRoleWidgetOpen(event.getGroupId(), true);
+
 		switch (event.getGroupId())
 		{
 			case InterfaceID.BARBASSAULT_WAVECOMPLETE:
 			{
                 Widget rewardWidget = client.getWidget(InterfaceID.BarbassaultWavecomplete.BARBASSAULT_COMPL_QUEENREWARDS);
-                double roundSeconds = timers.getRoundSeconds(isLeader);
-                if (rewardWidget != null && rewardWidget.getText().contains(ENDGAME_REWARD_NEEDLE_TEXT) && roundSeconds > 0)
+                String rewardText = rewardWidget != null ? rewardWidget.getText() : null;
+                double roundSeconds = tracker.onWaveComplete(rewardText);
+                RoundRecorder rec = recorder;
+                if (rec != null)
+                {
+                    rec.waveComplete(rewardText);
+                }
+                if (!Double.isNaN(roundSeconds))
 				{
-                    timers.stopAll();
+                    if (rec != null)
+                    {
+                        rec.endRound();
+                    }
+                    String round_role = tracker.getRoundRole();
+                    logWaveSplit(Timers.MAX_WAVE);
 
-					if ((roundSeconds < rolecurrentpb || rolecurrentpb == 0.0) && config.Seperate())
+					boolean newPb = false;
+					if (config.Seperate() && personalBests.offer(round_role, roundSeconds))
 					{
-						configManager.setRSProfileConfiguration("BaPB", round_role, roundSeconds);
+						newPb = true;
 						log.debug("Personal best of: {} saved in {}",roundSeconds, round_role);
 
                         chatMessageManager.queue(QueuedMessage.builder()
@@ -218,303 +492,263 @@ public class BaPBPlugin extends Plugin
                                 .build());
                         client.playSoundEffect(6765);
 					}
-					currentpb = getCurrentPB("Barbarian Assault");
-					if ((roundSeconds < currentpb || currentpb == 0.0))
+					if (personalBests.offer(PersonalBests.OVERALL, roundSeconds))
 					{
-						configManager.setRSProfileConfiguration("BaPB", "Barbarian Assault", roundSeconds);
+						newPb = true;
 						log.debug("Personal best of: {} saved in Barbarian Assault",roundSeconds);
 					}
+					if (newPb)
+					{
+						pbCache.invalidate(client.getLocalPlayer().getName());
+					}
 					//log.info(round_role);
 					//log.info(String.valueOf(gameTime.getPBTime()));
-					//log.info(String.valueOf(roleToDouble(round_role)));
-					//log.info(String.valueOf((gameTime.getPBTime() + roleToDouble(round_role))));
-					configManager.setRSProfileConfiguration("BaPB", "Recent", (roundSeconds + roleToDouble(round_role)));
-					if(config.Logging())
+					Role recentRole = Role.fromKey(round_role);
+					personalBests.set(PersonalBests.RECENT_EXACT, RecentRun.encode(roundSeconds, recentRole));
+					personalBests.set(PersonalBests.RECENT, RecentRun.encodeLegacy(roundSeconds, recentRole));
+					AsyncLineWriter csv = csvLog;
+					if(csv != null)
 					{
 						str
 							.append(Instant.now().toString())
 							.append(",")
 							.append(String.valueOf(roundSeconds));
-						out.println(str);
-						str = new StringBuilder();
-						shutDownActions();//this guarantees the new line is written to disk(prevents having to do weird jank turn plugin on/off behavior)
+						csv.offer(str.toString());
 					}
-                    service.handleRoundEnd(currentTeam, roundFormat, timers, isLeader, client.getLocalPlayer().getName(), getWorldRegion());
-					roundFormat = null;
+					str = new StringBuilder();
+                    RoundSnapshot round = tracker.finishRound(client.getLocalPlayer().getName(), getWorldRegion());
+                    if (config.RunHistory())
+                    {
+                        recordHistory(round, round_role);
+                    }
+                    if (config.SubmitRuns() && round.getFormat() != null)
+                    {
+                        service.handleRoundEnd(round);
+                    }
 				}
 
 				break;
 			}
 			case InterfaceID.BARBASSAULT_OVER_RECRUIT_PLAYER_NAMES: {
+				teamScanner.resolve(client);
 				scanning = true;
-				roundFormat = null;
-			}
-			case 159: {//this is to set scanning true when scroll is used on someone
-				scanning = true;
+				tracker.onScrollLoaded();
+				break;
 			}
+			case 159: // fall through
 			case 158: {//this is to set scanning true when scroll is used on someone
 				scanning = true;
+				teamScanner.restart();
+				break;
 			}
 		}
 	}
 
 	@Subscribe
-	public void onWidgetClosed(WidgetClosed event){
-		if (event.getGroupId() == BaRoleWidget) scanning = false;//sets scanning to false when leaving w1 or leaving for any reason
+	public void onWidgetClosed(WidgetClosed event)
+	{
+		final long start = latencies.start();
+		try
+		{
+			handleWidgetClosed(event);
+		}
+		finally
+		{
+			latencies.stop(HandlerLatencies.Handler.WIDGET_CLOSED, start);
+		}
+	}
+
+	private void handleWidgetClosed(WidgetClosed event){
+		if (event.getGroupId() == BaRoleWidget)
+		{
+			scanning = false;//sets scanning to false when leaving w1 or leaving for any reason
+			teamScanner.reset();
+		}
+		tracker.setRoleWidgetOpen(event.getGroupId(), false);
 	}
 
+    @Subscribe
+    public void onItemContainerChanged(ItemContainerChanged event)
+    {
+        if (event.getContainerId() == InventoryID.INVENTORY.getId())
+        {
+            tracker.setHasRoleHorn(containsRoleHorn(event.getItemContainer()));
+        }
+    }
+
+    @Subscribe
+    public void onVarbitChanged(VarbitChanged event)
+    {
+        if (event.getVarbitId() == BA_IN_GAME_VARBIT)
+        {
+            tracker.setInGameBit(event.getValue());
+        }
+    }
+
+    @Subscribe
+    public void onGameStateChanged(GameStateChanged event)
+    {
+        if (event.getGameState() == GameState.LOGIN_SCREEN || event.getGameState() == GameState.HOPPING)
+        {
+            // Interfaces and inventory are rebuilt from scratch after logging back in
+            tracker.clearInterfaces();
+        }
+    }
+
+    @Subscribe
+    public void onRuneScapeProfileChanged(RuneScapeProfileChanged event)
+    {
+        personalBests.load();
+    }
+
 	@Subscribe
 	public void onGameTick(GameTick event)
 	{
-        WorldPoint wp = client.getLocalPlayer().getWorldLocation();
-        
-        int detectedWave = inWave();
-        int detectedLobby = lobby.getLobbyId(wp);
-        boolean goodPremove = isGoodPremove(wp);
+		final long start = latencies.start();
+		try
+		{
+			handleGameTick();
+		}
+		finally
+		{
+			latencies.stop(HandlerLatencies.Handler.GAME_TICK, start);
+		}
+	}
 
-        // Only scroller should calculate relative spawn point
-        Lobby.RelativePoint relPoint = isLeader && config.SubmitQS() ? lobby.getRelativeCoordinates(wp, detectedLobby) : null;
+	private void handleGameTick()
+	{
+        int endedWave = tracker.onGameTick(config.SubmitQS() || splitLog != null);
+        RoundRecorder rec = recorder;
+        if (rec != null)
+        {
+            rec.tick(tracker);
+        }
 
-        timers.updateState(detectedWave, detectedLobby, goodPremove, relPoint);
-        timers.onGameTick();
+        if (endedWave > 0)
+        {
+            logWaveSplit(endedWave);
+        }
 
 		if(scanning) {
-			final String player;
-			player = client.getLocalPlayer().getName();
-			Widget leader = client.getWidget(BaRoleWidget,leaderID);
-			Widget leaderIcon = client.getWidget(BaRoleWidget, leadericonID);
-			Widget player1 = client.getWidget(BaRoleWidget,player1ID);
-			Widget player1Icon = client.getWidget(BaRoleWidget,player1iconID);
-			Widget player2 = client.getWidget(BaRoleWidget,player2ID);
-			Widget player2Icon = client.getWidget(BaRoleWidget,player2iconID);
-			Widget player3 = client.getWidget(BaRoleWidget,player3ID);
-			Widget player3Icon = client.getWidget(BaRoleWidget,player3iconID);
-			Widget player4 = client.getWidget(BaRoleWidget, player4ID);
-			Widget player4Icon = client.getWidget(BaRoleWidget, player4iconID);
-			log.debug("Scanning Team");
-
-            // All players have a role assigned
-			if (player1Icon.getModelId() != emptyIcon && player2Icon.getModelId() != emptyIcon && player3Icon.getModelId() != emptyIcon && player4Icon.getModelId() != emptyIcon && leaderIcon.getModelId() != emptyIcon){
-				log.debug("Scanning Complete");
-				log.debug("Leader is {}", leader.getText());
-				log.debug("Player1 is {}", player1.getText());
-				log.debug("Player2 is {}", player2.getText());
-				log.debug("Player3 is {}", player3.getText());
-				log.debug("Player4 is {}", player4.getText());
-
-
-				if(str.length() == 0  && config.Logging()){
-					log.debug("Created Log start");
-					str
-						.append(leader.getText())
-						.append(",")
-						.append(IDfinder(leaderIcon.getModelId()))
-						.append(",")
-						.append(player1.getText())
-						.append(",")
-						.append(IDfinder(player1Icon.getModelId()))
-						.append(",")
-						.append(player2.getText())
-						.append(",")
-						.append(IDfinder(player2Icon.getModelId()))
-						.append(",")
-						.append(player3.getText())
-						.append(",")
-						.append(IDfinder(player3Icon.getModelId()))
-						.append(",")
-						.append(player4.getText())
-						.append(",")
-						.append(IDfinder(player4Icon.getModelId()))
-						.append(",");
-				}
+			TeamScanner.Scan scan = teamScanner.poll(client, client.getLocalPlayer().getName());
+			if (scan != null)
+			{
 				scanning = false;
+				onTeamScanned(scan);
+			}
+		}
+	}
 
+	private void onTeamScanned(TeamScanner.Scan scan)
+	{
+		log.debug("Scanning Complete");
+		for (int slot = 0; slot < TeamScanner.PLAYERS; slot++)
+		{
+			log.debug("Scroll slot {} is {}", slot, scan.getName(slot));
+		}
 
-				for (int i = 8; i < 13; i++) {
-					String player_in_list = (client.getWidget(BaRoleWidget, i).getText());
-					String playerRole = IDfinder(client.getWidget(BaRoleWidget, (i+10)).getModelId());
-					if (player.compareTo(player_in_list) == 0){
-						//this checks which location the client is in the scroll
-					round_roleID = client.getWidget(BaRoleWidget, (i+10)).getModelId();
-					round_role = IDfinder(round_roleID);
-					log.debug("Your role has been identified as {}",round_role);
-					}
-				}
-
-
-
+		if(str.length() == 0  && config.Logging()){
+			log.debug("Created Log start");
+			for (int slot = 0; slot < TeamScanner.PLAYERS; slot++)
+			{
+				str
+					.append(scan.getName(slot))
+					.append(",")
+					.append(RoundTracker.roleKey(scan.getIcon(slot)))
+					.append(",");
+			}
+		}
 
-				if((leaderIcon.getModelId() == attackerIcon)&&(player1Icon.getModelId() == collectorIcon)&&(player2Icon.getModelId() == healerIcon)&&(player4Icon.getModelId() == defenderIcon)){
-					round_role = "Leech "+round_role;
-					log.debug("This has been identified as a leech run as {}",round_role);
-					roundFormat = "leech";
-				} else if ((leaderIcon.getModelId() == attackerIcon)&&(player1Icon.getModelId() == attackerIcon)&&(player2Icon.getModelId() == healerIcon)&&(player3Icon.getModelId() == collectorIcon)&&(player4Icon.getModelId() == defenderIcon)) {
-                    log.debug("This has been identified as a five man run as {}",round_role);
-                    roundFormat = "five_man";
-                } else if ((leaderIcon.getModelId() == attackerIcon)&&(player1Icon.getModelId() == healerIcon)&&(player2Icon.getModelId() == healerIcon)&&(player3Icon.getModelId() == collectorIcon)&&(player4Icon.getModelId() == defenderIcon)) {
-                    round_role = "DH "+round_role;
-                    log.debug("This has been identified as a duo heal run as {}",round_role);
-                    roundFormat = "duo_heal";
-                } else {
-                    roundFormat = null;
-                }
+		TeamClassifier.Composition team = tracker.onTeamScanned(scan);
+		RoundRecorder rec = recorder;
+		if (rec != null)
+		{
+			rec.scroll(scan);
+		}
 
+		if (config.PrefetchPbs())
+		{
+			prefetchTeamPbs(scan, team);
+		}
 
-                if(player.equals(leader.getText())){
-                    if (leaderIcon.getModelId() == attackerIcon && "five_man".equals(roundFormat)) {
-                        round_role = "Main Attacker";
-                        log.debug("You have been identified as Main Attacker");
-                    }
-                    isLeader = true;
-				} else {
-                    if (player.equals(player1.getText()) && "duo_heal".equals(roundFormat)) {
-                        round_role = "DH 2nd Healer";
-                        log.debug("You have been identified as 2nd Healer");
-                    } else if (player.equals(player2.getText()) && "duo_heal".equals(roundFormat)) {
-                        round_role = "DH Main Healer";
-                        log.debug("You have been identified as Main Healer");
-                    }
-                    isLeader = false;
-                }
+		if(config.Message())
+		{
+			chatMessageManager.queue(QueuedMessage.builder()
+				.type(ChatMessageType.CONSOLE)
+				.runeLiteFormattedMessage("Run identified as " + tracker.getRoundRole() + " good luck :)")
+				.build());
+		}
+		//log.info(round_role);
+		//log.info(String.valueOf(gameTime.getPBTime()));
+    }
 
-                // Save team data for API call
-                if(config.SubmitRuns())
-                {
-                    currentTeam.clear();
-
-                    // Only save current team if leech / five_man / dh
-                    if ("five_man".equals(roundFormat) || "leech".equals(roundFormat) || "duo_heal".equals(roundFormat)) {
-                        switch(roundFormat) {
-                            case "five_man":
-                                currentTeam.put(leader.getText(), "Main Attacker");
-                                currentTeam.put(player1.getText(), "2nd Attacker");
-                                currentTeam.put(player2.getText(), IDfinder(player2Icon.getModelId()));
-                                currentTeam.put(player3.getText(), IDfinder(player3Icon.getModelId()));
-                                currentTeam.put(player4.getText(), IDfinder(player4Icon.getModelId()));
-                                break;
-
-                            case "leech":
-                                currentTeam.put(leader.getText(), IDfinder(leaderIcon.getModelId()));
-                                currentTeam.put(player1.getText(), IDfinder(player1Icon.getModelId()));
-                                currentTeam.put(player2.getText(), IDfinder(player2Icon.getModelId()));
-                                currentTeam.put(player4.getText(), IDfinder(player4Icon.getModelId()));
-                                break;
-
-                            case "duo_heal":
-                                currentTeam.put(leader.getText(), IDfinder(leaderIcon.getModelId()));
-                                currentTeam.put(player1.getText(), "2nd Healer");
-                                currentTeam.put(player2.getText(), "Main Healer");
-                                currentTeam.put(player3.getText(), IDfinder(player3Icon.getModelId()));
-                                currentTeam.put(player4.getText(), IDfinder(player4Icon.getModelId()));
-                                break;
-                        }
-
-                        log.debug("Current Team: {}", currentTeam);
-                    } else {
-                        log.debug("Not a valid leech or five man run");
-                    }
-                }
 
-				if(config.Message())
-				{
-					chatMessageManager.queue(QueuedMessage.builder()
-						.type(ChatMessageType.CONSOLE)
-						.runeLiteFormattedMessage("Run identified as " + round_role + " good luck :)")
-						.build());
-				}
-				//log.info(round_role);
-				//log.info(String.valueOf(gameTime.getPBTime()));
-				//log.info(String.valueOf(roleToDouble(round_role)));
-				rolecurrentpb = getCurrentPB(round_role);
+	/**
+	 * Warms the PB lookup cache with the role, overall and recent PB of everyone on the scroll.
+	 */
+	private void prefetchTeamPbs(TeamScanner.Scan scan, TeamClassifier.Composition team)
+	{
+		for (int slot = 0; slot < TeamScanner.PLAYERS; slot++)
+		{
+			String name = Text.removeTags(scan.getName(slot)).replace('\u00A0', ' ');
+			if (name.isEmpty())
+			{
+				continue;
 			}
 
-
-
-
-        }
-    }
-
+			String role = team != null ? team.getPlayerRole(slot) : RoundTracker.roleKey(scan.getIcon(slot));
+			if (!role.isEmpty())
+			{
+				pbCache.prefetch(name, role);
+			}
+			pbCache.prefetch(name, PersonalBests.OVERALL);
+			pbCache.prefetch(name, PersonalBests.RECENT_EXACT);
+			pbCache.prefetch(name, PersonalBests.RECENT);
+		}
+	}
 
 	@Subscribe
 	public void onChatMessage(ChatMessage event)
 	{
-		if (event.getType() == ChatMessageType.GAMEMESSAGE
-			&& event.getMessage().startsWith("---- Wave:"))
+		final long start = latencies.start();
+		try
+		{
+			handleChatMessage(event);
+		}
+		finally
 		{
-			String[] message = event.getMessage().split(" ");
-			currentWave = Integer.parseInt(message[BA_WAVE_NUM_INDEX]);
+			latencies.stop(HandlerLatencies.Handler.CHAT_MESSAGE, start);
+		}
+	}
 
-			if (currentWave == START_WAVE)
+	private void handleChatMessage(ChatMessage event)
+	{
+		final MessageNode node = event.getMessageNode();
+		final String nodeValue = node != null ? node.getValue() : event.getMessage();
+		final int wave = tracker.onChatMessage(event.getType(), event.getMessage(), nodeValue);
+		RoundRecorder rec = recorder;
+		if (rec != null)
+		{
+			if (wave == RoundTracker.START_WAVE)
+			{
+				rec.startRound();
+			}
+			final String text = RoundTracker.parsedText(event.getType(), event.getMessage(), nodeValue);
+			if (text != null)
 			{
-                timers.resetAll();
-                timers.startRound();
+				rec.chat(event.getType(), text);
+			}
+		}
+		if (wave > 0)
+		{
+			lastSplitWave = 0;
+			if (wave == RoundTracker.START_WAVE)
+			{
+				service.prefetchToken(client.getLocalPlayer().getName());
 			}
 		}
-
-        // for some reason, the 'All of the Penance ... have been killed' are WELCOME messages for Healer/Collector/Defender roles
-        if (event.getType() == ChatMessageType.WELCOME || event.getType() == ChatMessageType.GAMEMESSAGE
-                && event.getMessage().startsWith("All of the Penance "))
-        {
-            checkNpcDeaths(event);
-        }
-
-        if (inWave() == 10 && event.getType() == ChatMessageType.GAMEMESSAGE
-                && event.getMessage().equals("The Queen has arrived and you can no longer use the horn of glory!")) {
-            double currentW10Time = timers.getWaveTimer(inWave()).getElapsedSeconds(isLeader, false);
-            timers.setQueenSpawnTime(currentW10Time);
-        }
 	}
 
-    private void checkNpcDeaths(ChatMessage chatMessage) {
-        final MessageNode node = chatMessage.getMessageNode();
-        String nodeValue = Text.removeTags(node.getValue());
-        String[] parts = nodeValue.split(" ");
-
-        if (parts.length < 5) {
-            return;
-        }
-
-        final String npc = parts[4];
-        // NOTE: This relies on the ba minigame plugin, maybe switch to own timers in the future
-        String deathTimeStr = parts[parts.length - 1];
-
-        // Remove trailing 's' if present
-        if (deathTimeStr.endsWith("s")) {
-            deathTimeStr = deathTimeStr.substring(0, deathTimeStr.length() - 1);
-        }
-
-        double deathTime;
-        try {
-            deathTime = Double.parseDouble(deathTimeStr);
-        } catch (NumberFormatException e) {
-            log.debug("Cant parse death time to double: {}", deathTimeStr);
-            return; // if parsing fails, skip the switch
-        }
-
-        int wave_num = inWave();
-        if (wave_num == 0) {
-            log.debug("Can't set death times outside of wave");
-            return;
-        }
-
-        switch (npc) {
-            case "Rangers":
-                timers.setRangerDeath(wave_num, deathTime);
-                break;
-            case "Fighters":
-                timers.setFighterDeath(wave_num, deathTime);
-                break;
-            case "Runners":
-                timers.setRunnerDeath(wave_num, deathTime);
-                break;
-            case "Healers":
-                timers.setHealerDeath(wave_num, deathTime);
-                break;
-            default:
-                break;
-        }
-    }
-
     private String getWorldRegion()
     {
         WorldResult worldResult = worldService.getWorlds();
@@ -561,33 +795,23 @@ public class BaPBPlugin extends Plugin
         return alpha2;
     }
 
-    private boolean isGoodPremove(WorldPoint wp)
+    /**
+     * Seeds the cached in-game flags from the current client state, for when the plugin is
+     * started mid game. Must run on the client thread.
+     */
+    private void refreshInGameState()
     {
-        return wp.getY() < PREMOVE_Y_THRESHOLD;
-    }
+        tracker.setInGameBit(client.getVarbitValue(BA_IN_GAME_VARBIT));
+        tracker.setHasRoleHorn(containsRoleHorn(client.getItemContainer(InventoryID.INVENTORY)));
 
-    private int inWave()
-    {
-        // This method centralizes wave detection by combining multiple checks:
-        // 1. Verifies inGameBit is 1 (player is in a BA game).
-        // 2. Confirms the player is in an instanced region (BA is always instanced).
-        // 3. Checks for a role-specific horn in the inventory.
-        // 4. Ensures a role-specific widget is loaded (indicating the player has a role).
-        // 5. Validates that currentWave is a valid number between 1 and 10.
-        // Returns the wave number (1-10) if one condition is met; otherwise, returns 0.
-
-        if ((inGameBit == 1 || hasRoleHorn() || hasRoleWidget()) && client.getTopLevelWorldView().isInstance()) {
-            if (currentWave < 1 || currentWave > 10) {
-                return 0;
-            }
-            return currentWave;
+        for (int groupId = RoundTracker.BA_ATTACKER_GROUP_ID; groupId <= RoundTracker.BA_HEALER_GROUP_ID; groupId++)
+        {
+            tracker.setRoleWidgetOpen(groupId, client.getWidget(groupId, 0) != null);
         }
-        return 0;
     }
 
-    private boolean hasRoleHorn()
+    private static boolean containsRoleHorn(ItemContainer inventory)
     {
-        ItemContainer inventory = client.getItemContainer(InventoryID.INVENTORY);
         if (inventory == null)
         {
             return false;
@@ -595,24 +819,7 @@ public class BaPBPlugin extends Plugin
 
         for (Item item : inventory.getItems())
         {
-            if (item == null)
-            {
-                continue;
-            }
-
-            int id = item.getId();
-            if (id == net.runelite.api.gameval.ItemID.BARBASSAULT_ATT_HORN_01 ||
-                    id == net.runelite.api.gameval.ItemID.BARBASSAULT_ATT_HORN_02 ||
-                    id == net.runelite.api.gameval.ItemID.BARBASSAULT_ATT_HORN_03 ||
-                    id == net.runelite.api.gameval.ItemID.BARBASSAULT_ATT_HORN_04 ||
-                    id == net.runelite.api.gameval.ItemID.BARBASSAULT_ATT_HORN_05 ||
-                    id == net.runelite.api.gameval.ItemID.BARBASSAULT_DEFENDER_HORN ||
-                    id == net.runelite.api.gameval.ItemID.BARBASSAULT_HORN_COLLECTOR ||
-                    id == net.runelite.api.gameval.ItemID.BARBASSAULT_HEAL_HORN_01 ||
-                    id == net.runelite.api.gameval.ItemID.BARBASSAULT_HEAL_HORN_02 ||
-                    id == net.runelite.api.gameval.ItemID.BARBASSAULT_HEAL_HORN_03 ||
-                    id == net.runelite.api.gameval.ItemID.BARBASSAULT_HEAL_HORN_04 ||
-                    id == net.runelite.api.gameval.ItemID.BARBASSAULT_HEAL_HORN_05)
+            if (item != null && RoundTracker.isRoleHorn(item.getId()))
             {
                 return true;
             }
@@ -620,26 +827,6 @@ public class BaPBPlugin extends Plugin
         return false;
     }
 
-    private boolean hasRoleWidget()
-    {
-        return client.getWidget(BA_ATTACKER_GROUP_ID, 0) != null ||
-                client.getWidget(BA_COLLECTOR_GROUP_ID, 0) != null ||
-                client.getWidget(BA_DEFENDER_GROUP_ID, 0) != null ||
-                client.getWidget(BA_HEALER_GROUP_ID, 0) != null;
-    }
-
-	private double getCurrentPB(String pbKey)
-	{
-		try
-		{
-			return configManager.getRSProfileConfiguration("BaPB", pbKey, double.class);
-		}
-		catch (Exception e)
-		{
-			return 0.0;
-		}
-	}
-
 	void recentLookup(ChatMessage chatMessage, String message){
 		ChatMessageType type = chatMessage.getType();
 		String search = message.substring(BA_COMMAND_STRING.length() + 1);
@@ -658,39 +845,31 @@ public class BaPBPlugin extends Plugin
 
 
 		net.runelite.http.api.chat.Task task;
-		final double BaPb;
+		double BaPb;
 		try
 		{
-			BaPb = chatClient.getPb(player, "Recent");
+			BaPb = pbCache.get(player, PersonalBests.RECENT_EXACT);
 		}
-		catch (IOException ex)
+		catch (IOException notFound)
 		{
-			log.debug("unable to retrieve PB", ex);
-			return;
+			// Players on older versions only have the legacy value
+			try
+			{
+				BaPb = pbCache.get(player, PersonalBests.RECENT);
+			}
+			catch (IOException ex)
+			{
+				log.debug("unable to retrieve PB", ex);
+				return;
+			}
 		}
-        // fractional part (0.xxx)
-        double fractional = BaPb - Math.floor(BaPb);
+		RecentRun recent = RecentRun.decode(BaPb);
+		String role = recent.getRole() != null ? recent.getRole().getKey() : "unknown role";
 
-        // compute tenths for time
-        // add a tiny epsilon to guard against floating-point imprecision
-        int tenths = (int) Math.floor(fractional * 10.0 + 1e-9);
-
-        // compute the 0.0xx value for role: subtract the tenths from fractional
-        double decimalPartForRole = fractional - (tenths / 10.0);
-
-        // round to 3 decimals
-        decimalPartForRole = Math.round(decimalPartForRole * 1000.0) / 1000.0;
-        if (decimalPartForRole < 0) decimalPartForRole = 0.0;
-
-        // pass the 0.0xx version into role encoder
-        String role = doubleToRole(decimalPartForRole);
-
-        // Format time as mm:ss.d (using tenths), tiny epsilon to guard against floating-point imprecision
-        int totalSeconds = (int) Math.floor(BaPb + 1e-9);
-        int minutes = totalSeconds / 60;
-        int seconds = totalSeconds % 60;
-
-        final String time = String.format("%d:%02d.%d", minutes, seconds, tenths);
+		long tenths = recent.getTenths();
+		long minutes = tenths / 600;
+		long seconds = (tenths / 10) % 60;
+		final String time = String.format("%d:%02d.%d", minutes, seconds, tenths % 10);
 		String response = new ChatMessageBuilder()
 			.append(ChatColorType.HIGHLIGHT)
 			.append("Recent ")
@@ -725,7 +904,7 @@ public class BaPBPlugin extends Plugin
 
 		search = longBossName(search);
 
-		if(search == "Recent"){
+		if(PersonalBests.RECENT.equals(search)){
 			recentLookup(chatMessage, message);
 			return;
 		}
@@ -734,7 +913,7 @@ public class BaPBPlugin extends Plugin
 		final double BaPb;
 		try
 		{
-			BaPb = chatClient.getPb(player, search);
+			BaPb = pbCache.get(player, search);
 		}
 		catch (IOException ex)
 		{
@@ -769,7 +948,7 @@ public class BaPBPlugin extends Plugin
 		int idx = value.indexOf(' ');
 		final String boss = longBossName(value.substring(idx + 1));
 
-		final double pb = configManager.getRSProfileConfiguration("BaPB", boss, double.class);
+		final double pb = personalBests.get(boss);
 
 		if (pb <= 0)
 		{
@@ -777,12 +956,20 @@ public class BaPBPlugin extends Plugin
 		}
 
 		final String playerName = client.getLocalPlayer().getName();
+		// The recent run goes out in both encodings, older versions only read the legacy one
+		final double exactRecent = PersonalBests.RECENT.equals(boss) ? personalBests.get(PersonalBests.RECENT_EXACT) : 0;
 
 		executor.execute(() ->
 		{
 			try
 			{
 				chatClient.submitPb(playerName, boss, pb);
+				pbCache.put(playerName, boss, pb);
+				if (exactRecent > 0)
+				{
+					chatClient.submitPb(playerName, PersonalBests.RECENT_EXACT, exactRecent);
+					pbCache.put(playerName, PersonalBests.RECENT_EXACT, exactRecent);
+				}
 			}
 			catch (Exception ex)
 			{
@@ -797,114 +984,24 @@ public class BaPBPlugin extends Plugin
 		return true;
 	}
 
-	private String IDfinder(int roleID){
-		if (roleID == attackerIcon) return "Attacker";
-		if (roleID == defenderIcon) return "Defender";
-		if (roleID == collectorIcon) return "Collector";
-		if (roleID == healerIcon) return "Healer";
-		return "";
-	}
-
-	private String doubleToRole(double time){
-        if(time == .01) return "Attacker";
-		if(time == .02) return "Defender";
-		if(time == .03) return "Collector";
-		if(time == .04) return "Healer";
-		if(time == .05) return "Leech Attacker";
-		if(time == .06) return "Leech Defender";
-		if(time == .07) return "Leech Collector";
-		if(time == .08) return "Leech Healer";
-		if(time == .09) return "Main Attacker";
-        if(time == .091) return "DH Attacker";
-        if(time == .092) return "DH 2nd Healer";
-        if(time == .093) return "DH Main Healer";
-        if(time == .094) return "DH Collector";
-        if(time == .095) return "DH Defender";
-		return "Please relaunch client and do another run to fix this bug";
-	}
-
-    private double roleToDouble(String role){
-        if(role.equals("Attacker")) return .01;
-        if(role.equals("Defender")) return .02;
-        if(role.equals("Collector")) return .03;
-        if(role.equals("Healer")) return .04;
-        if(role.equals("Leech Attacker")) return .05;
-        if(role.equals("Leech Defender")) return .06;
-        if(role.equals("Leech Collector")) return .07;
-        if(role.equals("Leech Healer")) return .08;
-        if(role.equals("Main Attacker")) return .09;
-        if(role.equals("DH Attacker")) return .091;
-        if(role.equals("DH 2nd Healer")) return .092;
-        if(role.equals("DH Main Healer")) return .093;
-        if(role.equals("DH Collector")) return .094;
-        if(role.equals("DH Defender")) return .095;
-        return .00;
-    }
-
-
 	private static String longBossName(String boss)
 	{
-		switch (boss.toLowerCase())
+		Role role = Role.fromAlias(boss);
+		if (role != null)
 		{
-			case "att":
-			case "a":
-			case "main":
-				return "Main Attacker";
-
-			case "2a":
-				return "Attacker";
-
-			case "la":
-				return "Leech Attacker";
-
-            case "dha":
-                return "DH Attacker";
-
-			case "heal":
-			case "h":
-				return "Healer";
-
-			case "lh":
-				return "Leech Healer";
-
-            case "dh2":
-            case "2h":
-                return "DH 2nd Healer";
-
-            case "dhh":
-            case "dh":
-            case "mh":
-                return "DH Main Healer";
-
-			case "def":
-			case "d":
-				return "Defender";
-
-			case "ld":
-				return "Leech Defender";
-
-            case "dhd":
-                return "DH Defender";
-
-			case "eggboi":
-			case "coll":
-			case "col":
-			case "c":
-				return "Collector";
-
-			case "lc":
-				return "Leech Collector";
-
-            case "dhc":
-                return "DH Collector";
+			return role.getKey();
+		}
 
+		switch (boss.toLowerCase())
+		{
 			case "":
 			case " ":
 			case "ba":
-				return "Barbarian Assault";
+				return PersonalBests.OVERALL;
 
 			case "r":
-				return "Recent";
+			case "recent":
+				return PersonalBests.RECENT;
 
 			case "gc":
 				return "Gc";
@@ -2,197 +2,332 @@ package com.BaPB;
 
 import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonWriter;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import okio.Buffer;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import javax.inject.Inject;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static net.runelite.client.RuneLite.RUNELITE_DIR;
 
 @Slf4j
 public class BaPBService
 {
-    private static final String TOKEN_ISSUER_URL   = "https://api.osrs-ba.com/api/v1/tokens/public/";
     private static final String SUBMIT_RUN_URL   = "https://api.osrs-ba.com/api/v1/rounds/";
-
-    private static final String SIGNING_SECRET = "ba-4-all";
-    private String cachedToken = null;
-    private Instant cachedTokenExpiry = null;
+    private static final String SUBMIT_BATCH_URL = "https://api.osrs-ba.com/api/v1/rounds/batch/";
 
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final byte[] BATCH_PREFIX = "{\"rounds\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BATCH_SUFFIX = "]}".getBytes(StandardCharsets.UTF_8);
+
+    // Unsubmitted rounds are journaled here and survive client restarts
+    private static final String OUTBOX_FILE = "barbarian-assault-outbox.log";
+    private static final int OUTBOX_MAX_ROUNDS = 1000;
+
+    // Retry delays while the API is unreachable, doubled after every failed attempt
+    private static final long INITIAL_BACKOFF_SECONDS = 5;
+    private static final long MAX_BACKOFF_SECONDS = 15 * 60;
+
+    private enum SubmitResult
+    {
+        SUBMITTED, // API accepted the round
+        REJECTED,  // API refused the round, retrying will never help
+        RETRY      // API or network trouble, try again later
+    }
+
+    private SubmissionOutbox outbox;
+    private ScheduledFuture<?> pendingDrain;
+    private long backoffSeconds = 0;
+
+    // After the batch endpoint is refused, or fails this many times in a row, rounds are posted
+    // one at a time until the batch endpoint is tried again
+    private static final int MAX_BATCH_FAILURES = 3;
+    private static final long BATCH_RETRY_MILLIS = 30 * 60 * 1000;
+
+    // Only touched on the executor
+    private int batchFailures = 0;
+    private long batchRejectedUntil = 0;
 
     private final OkHttpClient http;
     private final Gson gson;
     private final BaPBConfig config;
+    private final TokenManager tokens;
 
     @Inject
     private ScheduledExecutorService executor;
 
     @Inject
-    public BaPBService(OkHttpClient http, Gson gson, BaPBConfig config)
+    public BaPBService(OkHttpClient http, Gson gson, BaPBConfig config, TokenManager tokens)
     {
         this.http = http;
         this.gson = gson;
         this.config = config;
+        this.tokens = tokens;
     }
 
-    private boolean isTokenValid()
+    /**
+     * Opens the outbox and replays any rounds that were not submitted before the last shutdown.
+     */
+    public void startUp()
     {
-        if (cachedToken == null || cachedToken.isEmpty()) return false;
-        if (cachedTokenExpiry == null ) return false;
+        executor.execute(() -> {
+            try
+            {
+                SubmissionOutbox box = new SubmissionOutbox(new File(RUNELITE_DIR, OUTBOX_FILE), OUTBOX_MAX_ROUNDS);
+                box.open();
+
+                synchronized (this)
+                {
+                    outbox = box;
+                    backoffSeconds = 0;
+                    batchFailures = 0;
+                    batchRejectedUntil = 0;
+                }
 
-        // Expire 30 seconds early to avoid edge cases
-        Instant bufferExpiry = cachedTokenExpiry.minusSeconds(30);
-        return Instant.now().isBefore(bufferExpiry);
+                if (box.size() > 0)
+                {
+                    log.info("Replaying {} unsubmitted round(s) from the outbox", box.size());
+                    scheduleDrain(0);
+                }
+            }
+            catch (IOException e)
+            {
+                log.warn("Unable to open the round submission outbox", e);
+            }
+        });
     }
 
-    private void fetchToken(String currentPlayer) throws Exception
+    public void shutDown()
     {
-        String timestamp = String.valueOf(Instant.now().toEpochMilli());
-        String nonce = UUID.randomUUID().toString();
-        String signature = generateHmacSha256(SIGNING_SECRET, timestamp + nonce);
+        SubmissionOutbox box;
+        synchronized (this)
+        {
+            if (pendingDrain != null)
+            {
+                pendingDrain.cancel(false);
+                pendingDrain = null;
+            }
+            box = outbox;
+            outbox = null;
+        }
 
-        // Create JSON body
-        Map<String, String> bodyMap = new HashMap<>();
-        bodyMap.put("description", currentPlayer);
-        String jsonBody = gson.toJson(bodyMap);
+        tokens.shutDown();
+        if (box != null)
+        {
+            box.close();
+        }
+    }
 
-        RequestBody body = RequestBody.create(JSON, jsonBody);
+    /**
+     * Warms the API token ahead of a round end so the submission does not wait on it.
+     */
+    public void prefetchToken(String currentPlayer)
+    {
+        if (config.SubmitRuns())
+        {
+            tokens.prefetch(currentPlayer);
+        }
+    }
 
+    private byte[] buildPayload(RoundSnapshot round, String userUuid) throws IOException
+    {
+        // Stream the round straight into the buffer that is journaled and later posted as the body
+        Buffer buffer = new Buffer();
+        try (JsonWriter out = new JsonWriter(new OutputStreamWriter(buffer.outputStream(), StandardCharsets.UTF_8)))
+        {
+            RoundPayloadEncoder.write(out, round, userUuid);
+        }
+        return buffer.readByteArray();
+    }
+
+    private SubmitResult submitRunToAPI(SubmissionOutbox.Entry entry, String token) throws IOException
+    {
+        RequestBody body = RequestBody.create(JSON, entry.getPayload());
+        if (log.isDebugEnabled())
+        {
+            log.debug("Submitting body: {}", new String(entry.getPayload(), StandardCharsets.UTF_8));
+        }
         Request req = new Request.Builder()
-                .url(TOKEN_ISSUER_URL)
-                .header("X-Timestamp", timestamp)
-                .header("X-Nonce", nonce)
-                .header("X-Signature", signature)
+                .url(SUBMIT_RUN_URL)
+                .addHeader("Authorization", "Bearer " + token)
                 .post(body)
                 .build();
 
         try (Response resp = http.newCall(req).execute())
         {
-            if (!resp.isSuccessful() || resp.body() == null)
-                throw new RuntimeException("Failed to fetch API token: " + resp.code() + " " + resp.message());
-
-
-            String rawResponse = resp.body().string();  // read raw response
-
-            log.debug("Raw API response: {}", rawResponse);
-
-            TokenWrapper wrapper = gson.fromJson(rawResponse, TokenWrapper.class);
-            if (wrapper == null || wrapper.data == null || wrapper.data.token == null || wrapper.data.token.isEmpty())
-                throw new RuntimeException("Token issuer returned no 'token' key");
-
-            cachedToken = wrapper.data.token;
+            if (resp.isSuccessful())
+            {
+                log.info("Successfully submitted run to API");
+                return SubmitResult.SUBMITTED;
+            }
 
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS");
-            LocalDateTime ldt = LocalDateTime.parse(wrapper.data.expiresAt, formatter);
-            cachedTokenExpiry = ldt.toInstant(ZoneOffset.UTC);
+            log.warn("API submission failed: {} {}", resp.code(), resp.message());
+            return isRetryable(resp.code()) ? SubmitResult.RETRY : SubmitResult.REJECTED;
         }
     }
 
-    private void submitRunToAPI(
-            Map<String, String> currentTeam,
-            String roundFormat,
-            Timers timers,
-            boolean scroller,
-            String submittedBy,
-            String userUuid,
-            String worldRegion
-    ) throws IOException
+    private boolean isRetryable(int code)
     {
-        // Prepare players
-        List<PlayerEntry> players = new ArrayList<>();
-        for (Map.Entry<String, String> e : currentTeam.entrySet())
+        if (code == 401 || code == 403)
         {
-            String uuid = (userUuid != null && e.getKey().equals(submittedBy)) ? userUuid : null;
-            players.add(new PlayerEntry(e.getKey(), e.getValue(), uuid));
+            // Token was revoked or expired early, fetch a fresh one on the next attempt
+            tokens.invalidate();
+            return true;
         }
+        return code == 408 || code == 429 || code >= 500;
+    }
 
-        // Prepare wave data
-        List<WaveEntry> waveData = new ArrayList<>();
-        for (Map.Entry<Integer, Timers.WaveData> entry : timers.getWaveData().entrySet()) {
-            int waveNumber = entry.getKey();
-            Timers.WaveData data = entry.getValue();
-
-            double waveTime = 0;
-            int qsTime = 0;
-            boolean goodPremove = false;
-            boolean reset = false;
-            Lobby.RelativePoint rp = null;
-            Double rangerDeathTime = null;
-            Double fighterDeathTime = null;
-            Double runnerDeathTime = null;
-            Double healerDeathTime = null;
-            Double queenSpawnTime = null;
-
-            if (data != null) {
-                waveTime = data.getWaveTimer().getElapsedSeconds(scroller, false); // true = isLeader/scroller
-                qsTime = data.getQsTimer().roundTicks;
-                goodPremove = data.isGoodPremove();
-                reset = data.getLobbyCount() > 1;
-                rp = data.getRelativePoint();
-                rangerDeathTime = data.getRangerDeathTime();
-                fighterDeathTime = data.getFighterDeathTime();
-                runnerDeathTime = data.getRunnerDeathTime();
-                healerDeathTime = data.getHealerDeathTime();
-                queenSpawnTime = data.getQueenSpawnTime();
-
+    /**
+     * Posts several journaled rounds as one gzip-compressed request. The payloads are already
+     * serialized, so the body is built by concatenating them into a {"rounds": [...]} array.
+     * Returns one result per entry, or null if the server does not accept batches at all.
+     */
+    private SubmitResult[] submitBatchToAPI(List<SubmissionOutbox.Entry> entries, String token) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes))
+        {
+            gzip.write(BATCH_PREFIX);
+            for (int i = 0; i < entries.size(); i++)
+            {
+                if (i > 0)
+                {
+                    gzip.write(',');
+                }
+                gzip.write(entries.get(i).getPayload());
             }
-
-            waveData.add(new WaveEntry(waveNumber, waveTime, qsTime, goodPremove, reset, rp, rangerDeathTime, fighterDeathTime, runnerDeathTime, healerDeathTime, queenSpawnTime));
+            gzip.write(BATCH_SUFFIX);
         }
 
-        // Prepare round time
-        double roundTime = timers.getRoundTimer().getElapsedSeconds(scroller);
-
-        SubmitPayload payload = new SubmitPayload(
-                roundFormat,
-                roundTime,
-                submittedBy,
-                scroller,
-                worldRegion,
-                players,
-                waveData
-        );
-
-        RequestBody body = RequestBody.create(JSON, gson.toJson(payload));
-        log.debug("Submitting body: {}", gson.toJson(payload));
+        log.debug("Submitting batch of {} rounds ({} bytes compressed)", entries.size(), bytes.size());
         Request req = new Request.Builder()
-                .url(SUBMIT_RUN_URL)
-                .addHeader("Authorization", "Bearer " + cachedToken)
-                .post(body)
+                .url(SUBMIT_BATCH_URL)
+                .addHeader("Authorization", "Bearer " + token)
+                .addHeader("Content-Encoding", "gzip")
+                .post(RequestBody.create(JSON, bytes.toByteArray()))
                 .build();
 
         try (Response resp = http.newCall(req).execute())
         {
-            if (resp.isSuccessful())
+            if (!resp.isSuccessful())
             {
-                log.info("Successfully submitted run to API");
+                log.warn("API batch submission failed: {} {}", resp.code(), resp.message());
+                if (isRetryable(resp.code()))
+                {
+                    SubmitResult[] results = new SubmitResult[entries.size()];
+                    Arrays.fill(results, SubmitResult.RETRY);
+                    return results;
+                }
+                return null;
+            }
+
+            BatchWrapper wrapper = resp.body() == null ? null : gson.fromJson(resp.body().charStream(), BatchWrapper.class);
+            if (wrapper == null || wrapper.data == null || wrapper.data.results == null || wrapper.data.results.size() != entries.size())
+            {
+                log.warn("API batch response did not contain a result for every round");
+                return null;
+            }
+
+            SubmitResult[] results = new SubmitResult[entries.size()];
+            for (int i = 0; i < results.length; i++)
+            {
+                int code = wrapper.data.results.get(i).status;
+                if (code >= 200 && code < 300)
+                {
+                    results[i] = SubmitResult.SUBMITTED;
+                }
+                else
+                {
+                    log.warn("API rejected round {} in batch: {}", entries.get(i).getId(), code);
+                    results[i] = isRetryable(code) ? SubmitResult.RETRY : SubmitResult.REJECTED;
+                }
+            }
+            log.info("Successfully submitted batch of {} runs to API", entries.size());
+            return results;
+        }
+    }
+
+    /**
+     * Submits the given rounds, as one batch when batching is enabled and more than one round is
+     * pending. Falls back to single posts for a while if the batch is refused or keeps failing.
+     * Once a single post has to be retried the remaining rounds are not attempted, they would
+     * only fail the same way.
+     */
+    private SubmitResult[] submit(List<SubmissionOutbox.Entry> entries, String token) throws IOException
+    {
+        if (entries.size() > 1 && System.currentTimeMillis() >= batchRejectedUntil)
+        {
+            SubmitResult[] results = submitBatchToAPI(entries, token);
+            if (results != null && !isAll(results, SubmitResult.RETRY))
+            {
+                batchFailures = 0;
+                return results;
+            }
+            if (results != null && ++batchFailures < MAX_BATCH_FAILURES)
+            {
+                return results;
+            }
+
+            if (results == null)
+            {
+                log.info("API refused batch submission, falling back to single round posts");
             }
             else
             {
-                log.warn("API submission failed: {} {}", resp.code(), resp.message());
+                log.info("API batch submission failed {} times in a row, falling back to single round posts", batchFailures);
+            }
+            batchFailures = 0;
+            batchRejectedUntil = System.currentTimeMillis() + BATCH_RETRY_MILLIS;
+        }
+
+        SubmitResult[] results = new SubmitResult[entries.size()];
+        Arrays.fill(results, SubmitResult.RETRY);
+        for (int i = 0; i < results.length; i++)
+        {
+            results[i] = submitRunToAPI(entries.get(i), token);
+            if (results[i] == SubmitResult.RETRY)
+            {
+                break;
             }
         }
+        return results;
     }
 
-    public void handleRoundEnd(
-            Map<String, String> currentTeam,
-            String roundFormat,
-            Timers timers,
-            boolean scroller,
-            String submittedBy,
-            String worldRegion
-    )
+    private static boolean isAll(SubmitResult[] results, SubmitResult result)
     {
-        if (!config.SubmitRuns() || roundFormat == null)
+        for (SubmitResult r : results)
+        {
+            if (r != result)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int batchSize()
+    {
+        return config.BatchSubmissions() ? Math.max(1, config.BatchSize()) : 1;
+    }
+
+    /**
+     * Queues a finished round for submission. The snapshot is immutable, so serializing and
+     * journaling happen off the client thread without racing the next round.
+     */
+    public void handleRoundEnd(RoundSnapshot round)
+    {
+        if (!config.SubmitRuns() || round.getFormat() == null)
         {
             log.debug("SubmitRuns is disabled or roundFormat is null. Skipping round submission.");
             return;
@@ -201,148 +336,198 @@ public class BaPBService
         String userUuid = config.uuid_key();
 
         executor.execute(() -> {
-            try {
-                // Validate token
-                if (!isTokenValid()) {
-                    log.info("API token invalid or expired. Fetching a new one...");
-                    fetchToken(submittedBy);
-                }
+            SubmissionOutbox box;
+            synchronized (this)
+            {
+                box = outbox;
+            }
 
-                submitRunToAPI(currentTeam, roundFormat, timers, scroller, submittedBy, userUuid, worldRegion);
+            byte[] payload;
+            try
+            {
+                payload = buildPayload(round, userUuid);
+            }
+            catch (IOException e)
+            {
+                log.warn("Unable to serialize round for submission", e);
+                return;
+            }
 
-            } catch (Exception e) {
-                log.warn("Failed during token check or run submission", e);
+            if (box == null)
+            {
+                log.warn("Round submission outbox is not open, submitting round directly");
+            }
+            else
+            {
+                try
+                {
+                    box.append(round.getSubmittedBy(), payload);
+
+                    // Linger for more rounds when batching, unless a full batch is already waiting
+                    boolean linger = config.BatchSubmissions() && box.size() < batchSize();
+                    scheduleDrain(linger ? config.BatchLinger() : 0);
+                    return;
+                }
+                catch (IOException e)
+                {
+                    log.warn("Unable to journal round, submitting it directly", e);
+                }
             }
+
+            submitUnjournaled(new SubmissionOutbox.Entry(0, round.getSubmittedBy(), payload));
         });
     }
 
-    private String generateHmacSha256(String key, String data) throws Exception
+    /**
+     * Posts a round the outbox could not take once, the way every round was posted before the
+     * outbox existed. It is lost if that fails.
+     */
+    private void submitUnjournaled(SubmissionOutbox.Entry entry)
     {
-        Mac mac = Mac.getInstance("HmacSHA256");
-        mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
-        byte[] rawHmac = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-        return Base64.getEncoder().encodeToString(rawHmac);
-    }
-
-    private static class TokenWrapper {
-        String status;
-        TokenResponse data;
-        Object error;
+        try
+        {
+            SubmitResult result = submitRunToAPI(entry, tokens.getToken(entry.getSubmittedBy()));
+            if (result == SubmitResult.RETRY)
+            {
+                log.warn("Unable to submit a round that could not be journaled, it is lost");
+            }
+        }
+        catch (Exception e)
+        {
+            log.warn("Unable to submit a round that could not be journaled, it is lost", e);
+        }
     }
 
-    private static class TokenResponse
+    /**
+     * Schedules a drain of the outbox. A pending backoff retry is never brought forward, a pending
+     * linger is replaced if this drain is due sooner.
+     */
+    private synchronized void scheduleDrain(long delaySeconds)
     {
-        @SerializedName("token")
-        String token;
-
-        @SerializedName("expires_at")
-        String expiresAt;
-    }
-
-    private static class WaveEntry {
-        @SerializedName("wave_number")
-        final int waveNumber;
-
-        @SerializedName("wave_time")
-        final double waveTime;
-
-        @SerializedName("qs_time")
-        final int qsTime;
-
-        @SerializedName("good_premove")
-        final boolean goodPremove;
+        if (outbox == null)
+        {
+            return;
+        }
 
-        @SerializedName("reset")
-        final Boolean reset;
+        if (pendingDrain != null && !pendingDrain.isDone())
+        {
+            if (backoffSeconds > 0 || pendingDrain.getDelay(TimeUnit.SECONDS) <= delaySeconds)
+            {
+                return;
+            }
+            pendingDrain.cancel(false);
+        }
 
-        @SerializedName("x_qs_spawn")
-        final Integer xSpawn;
+        pendingDrain = executor.schedule(this::drainOutbox, delaySeconds, TimeUnit.SECONDS);
+    }
 
-        @SerializedName("y_qs_spawn")
-        final Integer ySpawn;
+    /**
+     * Submits pending rounds oldest first. Stops at the first retryable failure and backs off
+     * exponentially so an API outage costs one request per backoff period instead of one per round.
+     */
+    private void drainOutbox()
+    {
+        SubmissionOutbox box;
+        synchronized (this)
+        {
+            pendingDrain = null;
+            box = outbox;
+        }
 
-        @SerializedName("ranger_death_time")
-        final Double rangerDeathTime;
+        if (box == null || !config.SubmitRuns())
+        {
+            return;
+        }
 
-        @SerializedName("fighter_death_time")
-        final Double fighterDeathTime;
+        List<SubmissionOutbox.Entry> entries;
+        while (!(entries = box.peek(batchSize())).isEmpty())
+        {
+            synchronized (this)
+            {
+                if (outbox != box)
+                {
+                    return; // shut down mid-drain, the remaining rounds are replayed on the next start
+                }
+            }
 
-        @SerializedName("runner_death_time")
-        final Double runnerDeathTime;
+            SubmitResult[] results;
+            try
+            {
+                String token = tokens.getToken(entries.get(0).getSubmittedBy());
+                results = submit(entries, token);
+            }
+            catch (Exception e)
+            {
+                log.warn("Failed during token check or run submission", e);
+                results = new SubmitResult[entries.size()];
+                Arrays.fill(results, SubmitResult.RETRY);
+            }
 
-        @SerializedName("healer_death_time")
-        final Double healerDeathTime;
+            boolean retry = false;
+            for (int i = 0; i < results.length; i++)
+            {
+                SubmissionOutbox.Entry entry = entries.get(i);
+                if (results[i] == SubmitResult.RETRY)
+                {
+                    retry = true;
+                    continue;
+                }
 
-        @SerializedName("queen_spawn_time")
-        final Double queenSpawnTime;
+                if (results[i] == SubmitResult.REJECTED)
+                {
+                    log.warn("API rejected round {}, removing it from the outbox", entry.getId());
+                }
 
-        WaveEntry(int waveNumber, double waveTime, int qsTime, boolean goodPremove, boolean reset, Lobby.RelativePoint relativePoint, Double rangerDeathTime, Double fighterDeathTime, Double runnerDeathTime, Double healerDeathTime, Double queenSpawnTime) {
-            this.waveNumber = waveNumber;
-            this.waveTime = waveTime;
-            this.qsTime = qsTime;
-            this.goodPremove = goodPremove;
-            this.reset = reset;
-            this.rangerDeathTime = rangerDeathTime;
-            this.fighterDeathTime = fighterDeathTime;
-            this.runnerDeathTime = runnerDeathTime;
-            this.healerDeathTime = healerDeathTime;
-            this.queenSpawnTime = queenSpawnTime;
+                try
+                {
+                    box.acknowledge(entry.getId());
+                }
+                catch (IOException e)
+                {
+                    log.warn("Unable to acknowledge submitted round in the outbox", e);
+                    return;
+                }
+            }
 
-            if (relativePoint != null) {
-                this.xSpawn = relativePoint.getX();
-                this.ySpawn = relativePoint.getY();
-            } else {
-                this.xSpawn = null;
-                this.ySpawn = null;
+            if (retry)
+            {
+                synchronized (this)
+                {
+                    backoffSeconds = backoffSeconds == 0 ? INITIAL_BACKOFF_SECONDS : Math.min(backoffSeconds * 2, MAX_BACKOFF_SECONDS);
+                    log.debug("Retrying round submission in {}s ({} pending)", backoffSeconds, box.size());
+                    scheduleDrain(backoffSeconds);
+                }
+                return;
             }
         }
+
+        synchronized (this)
+        {
+            backoffSeconds = 0;
+        }
     }
 
-    private static class PlayerEntry
+    /*
+     * Response of the batch endpoint, one result per posted round in the order they were posted:
+     * {"status": "...", "data": {"results": [{"status": 201}, {"status": 400}, ...]}, "error": ...}
+     * Each status is the HTTP status the round would have got from a single post.
+     */
+    private static class BatchWrapper
     {
-        @SerializedName("character_name")
-        final String characterName;
-
-        @SerializedName("role")
-        final String role;
-
-        @SerializedName("uuid_key")
-        final String uuidKey; // optional
+        String status;
+        BatchResponse data;
+        Object error;
+    }
 
-        PlayerEntry(String characterName, String role, String uuidKey)
-        {
-            this.characterName = characterName;
-            this.role = role;
-            this.uuidKey = uuidKey;
-        }
+    private static class BatchResponse
+    {
+        @SerializedName("results")
+        List<BatchResult> results;
     }
 
-    private static class SubmitPayload
+    private static class BatchResult
     {
-        @SerializedName("format")
-        final String format;
-        @SerializedName("round_time")
-        final double roundTime;
-        @SerializedName("scroller")
-        final boolean scroller;
-        @SerializedName("submitted_by")
-        final String submittedBy;
-        @SerializedName("world_region")
-        final String worldRegion;
-        @SerializedName("players")
-        final List<PlayerEntry> players;
-        @SerializedName("wave_data")
-        final List<WaveEntry> waveData;
-
-        SubmitPayload(String format, double roundTime, String submittedBy, boolean scroller, String worldRegion, List<PlayerEntry> players, List<WaveEntry> waveData)
-        {
-            this.format = format;
-            this.roundTime = roundTime;
-            this.submittedBy = submittedBy;
-            this.scroller = scroller;
-            this.worldRegion = worldRegion;
-            this.players = players;
-            this.waveData = waveData;
-        }
+        @SerializedName("status")
+        int status;
     }
 }
@@ -24,42 +24,58 @@
  */
 package com.BaPB;
 
-import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Duration;
 
 import static net.runelite.client.util.RSTimeUnit.GAME_TICKS;
 
+/**
+ * Counts the game ticks between start and stop against a shared {@link TickClock}.
+ *
+ * Only the tick numbers of start and stop are recorded, so a timer costs nothing per tick
+ * whether it is running or not. Stopping and starting again keeps accumulating.
+ */
 @Slf4j
 public class GameTimer
 {
-    @Getter
-    public int roundTicks = 0;
+    private final TickClock clock;
+    private int stoppedTicks = 0; // ticks counted by earlier start/stop spans
+    private long startTick = 0;
     private boolean running = false;
 
+    public GameTimer(TickClock clock)
+    {
+        this.clock = clock;
+    }
+
     public void start()
     {
-        running = true;
+        if (!running)
+        {
+            startTick = clock.now();
+            running = true;
+        }
     }
 
     public void stop()
     {
-        running = false;
+        if (running)
+        {
+            stoppedTicks = getRoundTicks();
+            running = false;
+        }
     }
 
     public void clear()
     {
         running = false;
-        roundTicks = 0;
+        stoppedTicks = 0;
     }
 
-    public void onGameTick()
+    public int getRoundTicks()
     {
-        if (running)
-        {
-            roundTicks++;
-        }
+        return running ? stoppedTicks + (int) (clock.now() - startTick) : stoppedTicks;
     }
 
     public double getElapsedSeconds(Boolean isLeader) {
@@ -75,7 +91,7 @@ public class GameTimer
             numTicks = isLeader ? 2 : 1;
         }
 
-        int adjustedTicks = Math.max(0, roundTicks - numTicks);
+        int adjustedTicks = Math.max(0, getRoundTicks() - numTicks);
 
         Duration duration = Duration.of(adjustedTicks, GAME_TICKS);
         return duration.toMillis() / 1000.0;
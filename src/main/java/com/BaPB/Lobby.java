@@ -49,9 +49,19 @@ public class Lobby
         }
     }
 
+    // Lobbies are 8x8 tiles, so a point inside one has 64 possible relative coordinates
+    private static final int LOBBY_SIZE = 8;
+
     // Key = lobbyId, Value = region
     private final Map<Integer, LobbyRegion> regions = new HashMap<>();
 
+    // Bounding box of all lobbies, with the lobby id of every tile inside it (0 = no lobby)
+    private final int gridMinX, gridMinY, gridWidth, gridHeight;
+    private final byte[] lobbyGrid;
+
+    // Shared RelativePoint instances, indexed [lobbyId][x * 8 + y]
+    private final RelativePoint[][] relativePoints;
+
     public Lobby()
     {
         regions.put(1, new LobbyRegion(2576, 5291));
@@ -64,6 +74,41 @@ public class Lobby
         regions.put(8, new LobbyRegion(2603, 5281));
         regions.put(9, new LobbyRegion(2576, 5271));
         regions.put(10, new LobbyRegion(2584, 5271));
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxId = 0;
+        for (Map.Entry<Integer, LobbyRegion> entry : regions.entrySet())
+        {
+            LobbyRegion region = entry.getValue();
+            minX = Math.min(minX, region.xMin);
+            minY = Math.min(minY, region.yMin);
+            maxX = Math.max(maxX, region.xMax);
+            maxY = Math.max(maxY, region.yMax);
+            maxId = Math.max(maxId, entry.getKey());
+        }
+
+        gridMinX = minX;
+        gridMinY = minY;
+        gridWidth = maxX - minX + 1;
+        gridHeight = maxY - minY + 1;
+        lobbyGrid = new byte[gridWidth * gridHeight];
+        relativePoints = new RelativePoint[maxId + 1][];
+
+        for (Map.Entry<Integer, LobbyRegion> entry : regions.entrySet())
+        {
+            int lobbyId = entry.getKey();
+            LobbyRegion region = entry.getValue();
+            RelativePoint[] points = new RelativePoint[LOBBY_SIZE * LOBBY_SIZE];
+
+            for (int x = region.xMin; x <= region.xMax; x++)
+            {
+                for (int y = region.yMin; y <= region.yMax; y++)
+                {
+                    lobbyGrid[(x - gridMinX) * gridHeight + (y - gridMinY)] = (byte) lobbyId;
+                    points[(x - region.xMin) * LOBBY_SIZE + (y - region.yMin)] = new RelativePoint(x - region.xMin, y - region.yMin);
+                }
+            }
+            relativePoints[lobbyId] = points;
+        }
     }
 
     /**
@@ -71,14 +116,22 @@ public class Lobby
      */
     public int getLobbyId(WorldPoint point)
     {
-        for (Map.Entry<Integer, LobbyRegion> entry : regions.entrySet())
+        return getLobbyId(point.getX(), point.getY());
+    }
+
+    /**
+     * Returns the lobby ID containing this tile, or 0 if none. One range check on the
+     * bounding box of all lobbies, then one lookup in the precomputed tile grid.
+     */
+    public int getLobbyId(int x, int y)
+    {
+        int gx = x - gridMinX;
+        int gy = y - gridMinY;
+        if (gx < 0 || gy < 0 || gx >= gridWidth || gy >= gridHeight)
         {
-            if (entry.getValue().contains(point))
-            {
-                return entry.getKey();
-            }
+            return 0;
         }
-        return 0;
+        return lobbyGrid[gx * gridHeight + gy];
     }
 
     /**
@@ -91,7 +144,7 @@ public class Lobby
 
     /**
      * Returns the relative coordinates (x, y) within the given lobby.
-     * Returns null if the lobbyId is invalid.
+     * Returns null if the lobbyId is invalid. Points inside the lobby share cached instances.
      */
     public RelativePoint getRelativeCoordinates(WorldPoint point, int lobbyId)
     {
@@ -104,6 +157,11 @@ public class Lobby
         int relativeX = point.getX() - region.xMin;
         int relativeY = point.getY() - region.yMin;
 
+        if (relativeX >= 0 && relativeX < LOBBY_SIZE && relativeY >= 0 && relativeY < LOBBY_SIZE)
+        {
+            return relativePoints[lobbyId][relativeX * LOBBY_SIZE + relativeY];
+        }
+
         return new RelativePoint(relativeX, relativeY);
     }
 }
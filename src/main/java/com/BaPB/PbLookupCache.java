@@ -0,0 +1,204 @@
+package com.BaPB;
+
+import net.runelite.client.chat.ChatClient;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short lived cache in front of the chat PB lookups, keyed by player and PB key.
+ *
+ * A lookup that is already in flight is shared by everyone asking for the same PB, so five
+ * people typing !ba after a run cost one request per player. Failed lookups, which is also how
+ * a missing PB comes back, are remembered for a shorter time than found ones. The least
+ * recently used entries are dropped once the cache is full.
+ *
+ * PBs can also be prefetched on a small pool of its own, so the lookups of a whole team do
+ * not queue up behind each other or behind other work on the shared executor.
+ */
+public class PbLookupCache
+{
+    private static final int MAX_ENTRIES = 256;
+    private static final long TTL_MILLIS = 120_000;
+    private static final long NEGATIVE_TTL_MILLIS = 30_000;
+
+    private static final int PREFETCH_THREADS = 3;
+    // A team is 5 players with 4 keys each (role, overall and both recent keys), room for the
+    // prefetches of two teams even before any of them leaves the queue
+    private static final int PREFETCH_QUEUE = 2 * TeamScanner.PLAYERS * 4;
+
+    private static class Entry
+    {
+        final CompletableFuture<Double> value = new CompletableFuture<>();
+        // Set once the lookup completes
+        volatile long expiresAt = Long.MAX_VALUE;
+    }
+
+    private final ChatClient chatClient;
+
+    // Access ordered for LRU eviction, guarded by this
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+        {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // Created on the first prefetch, guarded by this
+    private ThreadPoolExecutor prefetchPool;
+
+    @Inject
+    public PbLookupCache(ChatClient chatClient)
+    {
+        this.chatClient = chatClient;
+    }
+
+    /**
+     * Returns the PB, looking it up if it is not cached. Blocks while a lookup is in flight, so
+     * only call this off the client thread.
+     *
+     * @throws IOException if the lookup failed or the player has no PB for the key
+     */
+    public double get(String player, String key) throws IOException
+    {
+        final String cacheKey = cacheKey(player, key);
+        final long now = System.currentTimeMillis();
+        Entry entry;
+        boolean owner = false;
+        synchronized (this)
+        {
+            entry = entries.get(cacheKey);
+            if (entry == null || now >= entry.expiresAt)
+            {
+                entry = new Entry();
+                entries.put(cacheKey, entry);
+                owner = true;
+            }
+        }
+
+        if (owner)
+        {
+            load(entry, player, key);
+        }
+
+        try
+        {
+            return entry.value.get();
+        }
+        catch (ExecutionException e)
+        {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Caches a PB that is known to be current, e.g. one the local player just submitted.
+     */
+    public synchronized void put(String player, String key, double value)
+    {
+        Entry entry = new Entry();
+        entry.value.complete(value);
+        entry.expiresAt = System.currentTimeMillis() + TTL_MILLIS;
+        entries.put(cacheKey(player, key), entry);
+    }
+
+    /**
+     * Drops every cached PB of a player.
+     */
+    public synchronized void invalidate(String player)
+    {
+        final String prefix = cacheKey(player, "");
+        for (Iterator<String> it = entries.keySet().iterator(); it.hasNext(); )
+        {
+            if (it.next().startsWith(prefix))
+            {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Looks the PB up in the background unless it is already cached. Prefetches beyond what the
+     * pool can queue are dropped.
+     */
+    public void prefetch(String player, String key)
+    {
+        pool().execute(() ->
+        {
+            try
+            {
+                get(player, key);
+            }
+            catch (IOException e)
+            {
+                // Cached as a miss, nothing else to do
+            }
+        });
+    }
+
+    public synchronized void shutDown()
+    {
+        entries.clear();
+        if (prefetchPool != null)
+        {
+            prefetchPool.shutdownNow();
+            prefetchPool = null;
+        }
+    }
+
+    private synchronized ThreadPoolExecutor pool()
+    {
+        if (prefetchPool == null)
+        {
+            prefetchPool = new ThreadPoolExecutor(PREFETCH_THREADS, PREFETCH_THREADS, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(PREFETCH_QUEUE),
+                    r ->
+                    {
+                        Thread thread = new Thread(r, "BaPB PB prefetch");
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.DiscardPolicy());
+            prefetchPool.allowCoreThreadTimeOut(true);
+        }
+        return prefetchPool;
+    }
+
+    private void load(Entry entry, String player, String key)
+    {
+        try
+        {
+            // Looked up under the same name the entry is cached under
+            double pb = chatClient.getPb(player.replace('\u00A0', ' '), key);
+            entry.expiresAt = System.currentTimeMillis() + TTL_MILLIS;
+            entry.value.complete(pb);
+        }
+        catch (Exception e)
+        {
+            entry.expiresAt = System.currentTimeMillis() + NEGATIVE_TTL_MILLIS;
+            entry.value.completeExceptionally(e);
+        }
+    }
+
+    private static String cacheKey(String player, String key)
+    {
+        // Names are case insensitive in game and use non-breaking spaces in some widgets
+        return player.replace('\u00A0', ' ').toLowerCase(Locale.ROOT) + '\u0000' + key;
+    }
+}
@@ -0,0 +1,210 @@
+package com.BaPB;
+
+/**
+ * Reads the NPC type and death time out of an "All of the Penance ... have been killed"
+ * message, as rewritten by the Barbarian Assault plugin with the time appended, e.g.
+ * "All of the Penance Healers have been killed!<col=ff0000> 34.2s".
+ *
+ * Gives the same result as stripping the tags, splitting on spaces, taking word 4 as the NPC
+ * and the last word minus a trailing 's' as the time, but does it in one pass over the raw
+ * text without creating any strings. Not thread safe, the result of the last {@link #parse}
+ * is kept in this instance.
+ */
+public final class PenanceDeathParser
+{
+    public enum Penance
+    {
+        RANGERS("Rangers"),
+        FIGHTERS("Fighters"),
+        RUNNERS("Runners"),
+        HEALERS("Healers");
+
+        private final String word;
+
+        Penance(String word)
+        {
+            this.word = word;
+        }
+
+        public String getWord()
+        {
+            return word;
+        }
+    }
+
+    private static final Penance[] PENANCE = Penance.values();
+    private static final int NPC_WORD = 4;
+    // Longest mantissa that is still exact in a double
+    private static final int MAX_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private Penance npc;
+    private double seconds;
+
+    /**
+     * NPC type of the last parsed message, null if it named none.
+     */
+    public Penance getNpc()
+    {
+        return npc;
+    }
+
+    /**
+     * Death time in seconds of the last parsed message, NaN if it did not end in one.
+     */
+    public double getSeconds()
+    {
+        return seconds;
+    }
+
+    /**
+     * Parses a message node value. Returns false if it has fewer than five words, in which case
+     * neither the NPC nor the time are set.
+     */
+    public boolean parse(CharSequence text)
+    {
+        npc = null;
+        seconds = Double.NaN;
+
+        final int length = text.length();
+        boolean inTag = false;
+        int word = 0;
+        int wordLength = 0;
+        int lastWord = -1; // index of the last word with any text
+        // Bit i is set while word 4 still matches PENANCE[i]
+        int candidates = (1 << PENANCE.length) - 1;
+
+        // Number state of the current word, reset whenever a new word starts
+        boolean number = false;
+        boolean negative = false;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1; // -1 until a '.' is seen
+        boolean suffix = false;
+
+        for (int i = 0; i <= length; i++)
+        {
+            final char c = i < length ? text.charAt(i) : ' ';
+
+            // Tags are dropped the way Text.removeTags does, stray '>' included
+            if (c == '<')
+            {
+                inTag = true;
+                continue;
+            }
+            if (inTag || c == '>')
+            {
+                inTag &= c != '>';
+                continue;
+            }
+
+            if (c == ' ')
+            {
+                if (wordLength > 0)
+                {
+                    lastWord = word;
+                    seconds = number && digits > 0 ? value(negative, mantissa, scale) : Double.NaN;
+                }
+                if (word == NPC_WORD)
+                {
+                    npc = match(candidates, wordLength);
+                }
+                word++;
+                wordLength = 0;
+                continue;
+            }
+
+            if (word == NPC_WORD)
+            {
+                for (int p = 0; p < PENANCE.length; p++)
+                {
+                    final String name = PENANCE[p].word;
+                    if (wordLength >= name.length() || name.charAt(wordLength) != c)
+                    {
+                        candidates &= ~(1 << p);
+                    }
+                }
+            }
+
+            if (wordLength++ == 0)
+            {
+                number = true;
+                negative = false;
+                mantissa = 0;
+                digits = 0;
+                scale = -1;
+                suffix = false;
+            }
+
+            if (!number)
+            {
+                continue;
+            }
+
+            if (suffix)
+            {
+                // Only a single trailing 's' is allowed
+                number = false;
+            }
+            else if (c >= '0' && c <= '9')
+            {
+                if (digits == MAX_DIGITS)
+                {
+                    number = false;
+                    continue;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (scale >= 0)
+                {
+                    scale++;
+                }
+            }
+            else if (c == '.' && scale < 0)
+            {
+                scale = 0;
+            }
+            else if ((c == '-' || c == '+') && wordLength == 1)
+            {
+                negative = c == '-';
+            }
+            else if (c == 's')
+            {
+                suffix = true;
+            }
+            else
+            {
+                number = false;
+            }
+        }
+
+        if (lastWord < NPC_WORD)
+        {
+            npc = null;
+            seconds = Double.NaN;
+            return false;
+        }
+        return true;
+    }
+
+    private static double value(boolean negative, long mantissa, int scale)
+    {
+        // Both operands are exact, so the one rounding step gives the same double as parseDouble
+        final double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private static Penance match(int candidates, int wordLength)
+    {
+        for (int p = 0; p < PENANCE.length; p++)
+        {
+            if ((candidates & (1 << p)) != 0 && PENANCE[p].word.length() == wordLength)
+            {
+                return PENANCE[p];
+            }
+        }
+        return null;
+    }
+}
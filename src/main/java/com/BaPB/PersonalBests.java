@@ -0,0 +1,220 @@
+package com.BaPB;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.config.ConfigManager;
+
+import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory copy of the PBs stored in the RS profile configuration.
+ *
+ * Every role, overall and recent PB is read from the config store when the profile is
+ * loaded, after that reads and updates only touch the map. Updated keys are written back to
+ * the profile they belong to a few seconds after the last change, on the executor, and right
+ * away when the profile changes or the plugin shuts down. The config store is written without
+ * holding the lock the client thread needs to read and update PBs.
+ */
+@Slf4j
+public class PersonalBests
+{
+    static final String CONFIG_GROUP = "BaPB";
+    public static final String OVERALL = "Barbarian Assault";
+    // Recent run in the fractional encoding older versions read, see RecentRun
+    public static final String RECENT = "Recent";
+    public static final String RECENT_EXACT = "Recent2";
+
+    private static final long FLUSH_DELAY_SECONDS = 5;
+
+    private final ConfigManager configManager;
+    private final ScheduledExecutorService executor;
+
+    // Taken before this, keeps writes to the config store in the order they were taken out
+    private final Object writeLock = new Object();
+
+    // All guarded by this
+    private String profile;
+    private final Map<String, Double> values = new HashMap<>();
+    private final Set<String> dirty = new LinkedHashSet<>();
+    private ScheduledFuture<?> pendingFlush;
+
+    @Inject
+    public PersonalBests(ConfigManager configManager, ScheduledExecutorService executor)
+    {
+        this.configManager = configManager;
+        this.executor = executor;
+    }
+
+    /**
+     * Switches to the current RS profile and reads its PBs, writing out anything still pending
+     * for the last one.
+     */
+    public void load()
+    {
+        switchProfile(configManager.getRSProfileKey());
+    }
+
+    /**
+     * Returns the stored time for a key, 0 if there is none.
+     */
+    public synchronized double get(String key)
+    {
+        Double value = values.get(key);
+        if (value == null)
+        {
+            value = read(key);
+            values.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Stores the time if it beats the current PB for the key, or if there is none yet.
+     *
+     * @return whether this is a new PB
+     */
+    public synchronized boolean offer(String key, double seconds)
+    {
+        double current = get(key);
+        if (current != 0.0 && seconds >= current)
+        {
+            return false;
+        }
+
+        set(key, seconds);
+        return true;
+    }
+
+    /**
+     * Stores a value regardless of the current one.
+     */
+    public synchronized void set(String key, double value)
+    {
+        values.put(key, value);
+        dirty.add(key);
+
+        if (pendingFlush == null)
+        {
+            pendingFlush = executor.schedule(this::flush, FLUSH_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Writes all changed values to the config store.
+     */
+    public void flush()
+    {
+        synchronized (writeLock)
+        {
+            Map<String, Double> updates;
+            String updatedProfile;
+            synchronized (this)
+            {
+                updatedProfile = profile;
+                updates = drain();
+            }
+            write(updatedProfile, updates);
+        }
+    }
+
+    public void shutDown()
+    {
+        switchProfile(null);
+    }
+
+    private void switchProfile(String next)
+    {
+        synchronized (writeLock)
+        {
+            Map<String, Double> updates;
+            String updatedProfile;
+            synchronized (this)
+            {
+                updatedProfile = profile;
+                updates = drain();
+                values.clear();
+                profile = next;
+                if (next != null)
+                {
+                    // Every PB a round end can touch, so that stays a map lookup
+                    for (Role role : Role.values())
+                    {
+                        values.put(role.getKey(), read(role.getKey()));
+                    }
+                    values.put(OVERALL, read(OVERALL));
+                    values.put(RECENT, read(RECENT));
+                    values.put(RECENT_EXACT, read(RECENT_EXACT));
+                }
+            }
+            write(updatedProfile, updates);
+        }
+    }
+
+    // Takes out the changed values, null if there are none
+    private Map<String, Double> drain()
+    {
+        if (pendingFlush != null)
+        {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+
+        if (dirty.isEmpty())
+        {
+            return null;
+        }
+
+        Map<String, Double> updates = new LinkedHashMap<>();
+        for (String key : dirty)
+        {
+            updates.put(key, values.get(key));
+        }
+        dirty.clear();
+        return updates;
+    }
+
+    private void write(String updatedProfile, Map<String, Double> updates)
+    {
+        if (updates == null)
+        {
+            return;
+        }
+
+        if (updatedProfile == null)
+        {
+            log.debug("Dropping {} PB updates made without a RS profile", updates.size());
+            return;
+        }
+
+        for (Map.Entry<String, Double> update : updates.entrySet())
+        {
+            configManager.setConfiguration(CONFIG_GROUP, updatedProfile, update.getKey(), update.getValue());
+        }
+        log.debug("Saved {} PB updates", updates.size());
+    }
+
+    private double read(String key)
+    {
+        if (profile == null)
+        {
+            return 0.0;
+        }
+
+        try
+        {
+            Double value = configManager.getConfiguration(CONFIG_GROUP, profile, key, double.class);
+            return value != null ? value : 0.0;
+        }
+        catch (Exception e)
+        {
+            return 0.0;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.BaPB;
+
+/**
+ * Codec for the recent run values: the time and role of the last run, packed into the one
+ * double that the chat PB service stores per key.
+ *
+ * Runs are stored under "Recent2" as the whole number 1,000,000 + ticks * 32 + (role ordinal
+ * + 1), with 0 in the low bits for an unknown role. Integers this size are exact in a double,
+ * so a value decodes to exactly the tick count and role it was made from.
+ *
+ * Older versions store seconds plus a role code in the fraction (123.6 + 0.093 = 123.693 for
+ * a DH Main Healer run) under "Recent", and read that key with nothing but that scheme. It is
+ * still written for them next to the exact value. Those values are always below 1,000,000 and
+ * are still decoded, for players who only have the old key.
+ */
+public final class RecentRun
+{
+    private static final long OFFSET = 1_000_000L;
+    private static final int ROLE_BITS = 5;
+    private static final long ROLE_MASK = (1 << ROLE_BITS) - 1;
+
+    private static final Role[] ROLES = Role.values();
+
+    static
+    {
+        if (ROLES.length > ROLE_MASK)
+        {
+            throw new IllegalStateException("Too many roles for the Recent encoding");
+        }
+    }
+
+    private final long tenths;
+    private final Role role;
+
+    private RecentRun(long tenths, Role role)
+    {
+        this.tenths = tenths;
+        this.role = role;
+    }
+
+    public static double encode(int ticks, Role role)
+    {
+        long code = role != null ? role.ordinal() + 1 : 0;
+        return OFFSET + ((long) ticks << ROLE_BITS) + code;
+    }
+
+    /**
+     * Encodes a run time in seconds, which is always a whole number of 0.6 second ticks.
+     */
+    public static double encode(double seconds, Role role)
+    {
+        return encode((int) Math.round(seconds / 0.6), role);
+    }
+
+    /**
+     * Encodes a run the way older versions do, for the "Recent" key they read.
+     */
+    public static double encodeLegacy(double seconds, Role role)
+    {
+        double tenths = Math.round(seconds * 10) / 10.0;
+        return tenths + (role != null ? role.getLegacyCode() / 1000.0 : 0);
+    }
+
+    public static RecentRun decode(double value)
+    {
+        if (value >= OFFSET && value == Math.rint(value))
+        {
+            long packed = (long) value - OFFSET;
+            int code = (int) (packed & ROLE_MASK);
+            long ticks = packed >> ROLE_BITS;
+            return new RecentRun(ticks * 6, code > 0 && code <= ROLES.length ? ROLES[code - 1] : null);
+        }
+
+        // Legacy: whole seconds, tenths in the first decimal and the role code in the next two
+        long millis = Math.round(value * 1000);
+        long seconds = millis / 1000;
+        long tenths = (millis % 1000) / 100;
+        return new RecentRun(seconds * 10 + tenths, Role.fromLegacyCode((int) (millis % 100)));
+    }
+
+    /**
+     * Run time in tenths of a second.
+     */
+    public long getTenths()
+    {
+        return tenths;
+    }
+
+    /**
+     * Role played, null if it is not known.
+     */
+    public Role getRole()
+    {
+        return role;
+    }
+}
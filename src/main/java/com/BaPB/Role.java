@@ -0,0 +1,120 @@
+package com.BaPB;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Every role a PB is kept for, with the config/chat key it is stored under, the scroll icon of
+ * the four base roles, the short names accepted by the !ba command and the code the old
+ * "Recent" encoding used for it.
+ *
+ * The declaration order is persisted by {@link RecentRun}, only ever add roles at the end.
+ */
+public enum Role
+{
+    ATTACKER("Attacker", 20561, 10, "2a"),
+    DEFENDER("Defender", 20566, 20, "def", "d"),
+    COLLECTOR("Collector", 20563, 30, "eggboi", "coll", "col", "c"),
+    HEALER("Healer", 20569, 40, "heal", "h"),
+    LEECH_ATTACKER("Leech Attacker", 50, "la"),
+    LEECH_DEFENDER("Leech Defender", 60, "ld"),
+    LEECH_COLLECTOR("Leech Collector", 70, "lc"),
+    LEECH_HEALER("Leech Healer", 80, "lh"),
+    MAIN_ATTACKER("Main Attacker", 90, "att", "a", "main"),
+    DH_ATTACKER("DH Attacker", 91, "dha"),
+    DH_SECOND_HEALER("DH 2nd Healer", 92, "dh2", "2h"),
+    DH_MAIN_HEALER("DH Main Healer", 93, "dhh", "dh", "mh"),
+    DH_COLLECTOR("DH Collector", 94, "dhc"),
+    DH_DEFENDER("DH Defender", 95, "dhd");
+
+    private static final int NO_ICON = -1;
+
+    private static final Map<Integer, Role> BY_ICON = new HashMap<>();
+    private static final Map<String, Role> BY_ALIAS = new HashMap<>();
+    private static final Map<String, Role> BY_KEY = new HashMap<>();
+    private static final Role[] BY_LEGACY_CODE = new Role[100];
+
+    static
+    {
+        for (Role role : values())
+        {
+            if (role.icon != NO_ICON)
+            {
+                BY_ICON.put(role.icon, role);
+            }
+            for (String alias : role.aliases)
+            {
+                BY_ALIAS.put(alias, role);
+            }
+            BY_KEY.put(role.key, role);
+            BY_LEGACY_CODE[role.legacyCode] = role;
+        }
+    }
+
+    private final String key;
+    private final int icon;
+    private final int legacyCode;
+    private final String[] aliases;
+
+    Role(String key, int legacyCode, String... aliases)
+    {
+        this(key, NO_ICON, legacyCode, aliases);
+    }
+
+    Role(String key, int icon, int legacyCode, String... aliases)
+    {
+        this.key = key;
+        this.icon = icon;
+        this.legacyCode = legacyCode;
+        this.aliases = aliases;
+    }
+
+    /**
+     * Name the PB is stored and looked up under, e.g. "Leech Healer".
+     */
+    public String getKey()
+    {
+        return key;
+    }
+
+    /**
+     * Base role shown on the scroll with this icon model id, or null.
+     */
+    public static Role fromIcon(int icon)
+    {
+        return BY_ICON.get(icon);
+    }
+
+    /**
+     * Role for a !ba short name such as "lh", case insensitive, or null.
+     */
+    public static Role fromAlias(String alias)
+    {
+        return BY_ALIAS.get(alias.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Role stored under a PB key, or null if the key is not a role.
+     */
+    public static Role fromKey(String key)
+    {
+        return key == null ? null : BY_KEY.get(key);
+    }
+
+    /**
+     * Code of the old fractional "Recent" encoding, 10 for 0.01.
+     */
+    int getLegacyCode()
+    {
+        return legacyCode;
+    }
+
+    /**
+     * Role for a code of the old fractional "Recent" encoding (0.01 is 10, 0.091 is 91), or null.
+     */
+    static Role fromLegacyCode(int code)
+    {
+        return code >= 0 && code < BY_LEGACY_CODE.length ? BY_LEGACY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,92 @@
+package com.BaPB;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes the round submission JSON straight from a {@link RoundSnapshot}.
+ *
+ * Produces the same document Gson's reflective serializer used to build from the
+ * SubmitPayload/PlayerEntry/WaveEntry classes (null fields omitted, same field order), without
+ * building that object graph or boxing any of the wave values first.
+ */
+public final class RoundPayloadEncoder
+{
+    private RoundPayloadEncoder()
+    {
+    }
+
+    public static void write(JsonWriter out, RoundSnapshot round, String userUuid) throws IOException
+    {
+        out.beginObject();
+        out.name("format").value(round.getFormat());
+        out.name("round_time").value(round.getRoundSeconds());
+        out.name("scroller").value(round.isScroller());
+        writeString(out, "submitted_by", round.getSubmittedBy());
+        writeString(out, "world_region", round.getWorldRegion());
+
+        out.name("players").beginArray();
+        for (int i = 0; i < round.getPlayerCount(); i++)
+        {
+            String name = round.getPlayerName(i);
+            out.beginObject();
+            writeString(out, "character_name", name);
+            writeString(out, "role", round.getPlayerRole(i));
+            if (userUuid != null && name.equals(round.getSubmittedBy()))
+            {
+                out.name("uuid_key").value(userUuid);
+            }
+            out.endObject();
+        }
+        out.endArray();
+
+        out.name("wave_data").beginArray();
+        for (int i = 0; i < round.getWaveCount(); i++)
+        {
+            writeWave(out, round, i);
+        }
+        out.endArray();
+
+        out.endObject();
+    }
+
+    private static void writeWave(JsonWriter out, RoundSnapshot round, int wave) throws IOException
+    {
+        out.beginObject();
+        out.name("wave_number").value(round.getWaveNumber(wave));
+        out.name("wave_time").value(round.getWaveSeconds(wave));
+        out.name("qs_time").value(round.getQsTicks(wave));
+        out.name("good_premove").value(round.isGoodPremove(wave));
+        out.name("reset").value(round.isReset(wave));
+
+        if (round.getSpawnX(wave) != RoundSnapshot.NO_SPAWN)
+        {
+            out.name("x_qs_spawn").value(round.getSpawnX(wave));
+            out.name("y_qs_spawn").value(round.getSpawnY(wave));
+        }
+
+        writeTime(out, "ranger_death_time", round.getRangerDeathTime(wave));
+        writeTime(out, "fighter_death_time", round.getFighterDeathTime(wave));
+        writeTime(out, "runner_death_time", round.getRunnerDeathTime(wave));
+        writeTime(out, "healer_death_time", round.getHealerDeathTime(wave));
+        writeTime(out, "queen_spawn_time", round.getQueenSpawnTime(wave));
+        out.endObject();
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException
+    {
+        if (value != null)
+        {
+            out.name(name).value(value);
+        }
+    }
+
+    private static void writeTime(JsonWriter out, String name, double seconds) throws IOException
+    {
+        if (!Double.isNaN(seconds))
+        {
+            out.name(name).value(seconds);
+        }
+    }
+}
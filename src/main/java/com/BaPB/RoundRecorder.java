@@ -0,0 +1,210 @@
+package com.BaPB;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ChatMessageType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Records every round into its own {@link RoundRecording} file, e.g.
+ * round-20240501-203015-123.bin.
+ *
+ * A round is encoded in memory on the client thread, from the wave 1 start message until the
+ * tick its last wave complete interface loaded. The finished file is written on the executor,
+ * which then deletes the oldest recordings until the folder is back under its file count and
+ * size limit. A round that never ends is cut off after an hour.
+ */
+@Slf4j
+public class RoundRecorder
+{
+    private static final String FILE_PREFIX = "round-";
+    private static final String FILE_SUFFIX = ".bin";
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneId.systemDefault());
+
+    static final long MAX_BYTES = 32L << 20;
+    static final int MAX_FILES = 1000;
+    private static final int MAX_TICKS = 6000;
+
+    private final File directory;
+    private final Executor executor;
+    private final long maxBytes;
+    private final int maxFiles;
+
+    // Client thread state, guarded by this so the recorder can be closed from any thread
+    private RoundRecording.Writer writer;
+    private boolean ending;
+    private long lastStart;
+    private int[] scrollIcons;
+    private int scrollLocalSlot;
+
+    public RoundRecorder(File directory, Executor executor)
+    {
+        this(directory, executor, MAX_BYTES, MAX_FILES);
+    }
+
+    RoundRecorder(File directory, Executor executor, long maxBytes, int maxFiles)
+    {
+        this.directory = directory;
+        this.executor = executor;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * Starts recording a round that just started, saving any recording still open.
+     */
+    public synchronized void startRound()
+    {
+        save();
+
+        // Start times name the files, keep them unique
+        lastStart = Math.max(System.currentTimeMillis(), lastStart + 1);
+        writer = new RoundRecording.Writer(lastStart);
+        ending = false;
+        if (scrollIcons != null)
+        {
+            writer.scroll(scrollIcons, scrollLocalSlot);
+        }
+    }
+
+    /**
+     * Records the text the tracker parsed from a chat message, see {@link RoundTracker#parsedText}.
+     */
+    public synchronized void chat(ChatMessageType type, String message)
+    {
+        if (writer != null)
+        {
+            writer.chat(type, message);
+        }
+    }
+
+    /**
+     * Records the team read off the scroll, which is also written at the start of the next
+     * recording since the scroll is read before the round starts.
+     */
+    public synchronized void scroll(TeamScanner.Scan scan)
+    {
+        scrollIcons = new int[TeamScanner.PLAYERS];
+        for (int slot = 0; slot < TeamScanner.PLAYERS; slot++)
+        {
+            scrollIcons[slot] = scan.getIcon(slot);
+        }
+        scrollLocalSlot = scan.getLocalSlot();
+
+        if (writer != null)
+        {
+            writer.scroll(scrollIcons, scrollLocalSlot);
+        }
+    }
+
+    public synchronized void waveComplete(String rewardText)
+    {
+        if (writer != null && rewardText != null)
+        {
+            writer.waveComplete(rewardText);
+        }
+    }
+
+    /**
+     * The round ended during this tick, the recording is saved once the tick is recorded.
+     */
+    public synchronized void endRound()
+    {
+        ending = true;
+    }
+
+    /**
+     * Records the tick the tracker just processed.
+     */
+    public synchronized void tick(RoundTracker tracker)
+    {
+        if (writer == null)
+        {
+            return;
+        }
+
+        writeTick(writer, tracker);
+        if (ending || writer.getTickCount() >= MAX_TICKS)
+        {
+            save();
+        }
+    }
+
+    /**
+     * Writes the inputs and detected state of the tick the tracker just processed.
+     */
+    static void writeTick(RoundRecording.Writer writer, RoundTracker tracker)
+    {
+        TickState state = tracker.currentState();
+        int inputs = RoundRecording.inputs(tracker.getInGameBit() == 1, tracker.hasRoleHorn(), tracker.isInstanced(),
+                tracker.getOpenRoleWidgets(), state.getPosition() != null);
+        writer.tick(state.getPosition(), inputs, state.getWave(), state.getLobbyId());
+    }
+
+    /**
+     * Saves the recording of a round still in progress.
+     */
+    public synchronized void close()
+    {
+        save();
+        scrollIcons = null;
+    }
+
+    private void save()
+    {
+        final RoundRecording.Writer round = writer;
+        writer = null;
+        ending = false;
+        if (round == null || round.getTickCount() == 0)
+        {
+            return;
+        }
+
+        final byte[] data = round.toByteArray();
+        final File file = new File(directory, FILE_PREFIX + FILE_TIME.format(Instant.ofEpochMilli(round.getStartMillis())) + FILE_SUFFIX);
+        executor.execute(() ->
+        {
+            try
+            {
+                Files.createDirectories(directory.toPath());
+                Files.write(file.toPath(), data);
+                log.debug("Recorded {} ticks of a round in {} bytes to {}", round.getTickCount(), data.length, file);
+            }
+            catch (IOException e)
+            {
+                log.warn("Unable to save the round recording", e);
+                return;
+            }
+            prune();
+        });
+    }
+
+    // Deletes the oldest recordings beyond the file count or size limit
+    private void prune()
+    {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files == null)
+        {
+            return;
+        }
+
+        // Names sort by start time, newest first
+        Arrays.sort(files, (a, b) -> b.getName().compareTo(a.getName()));
+        long bytes = 0;
+        for (int i = 0; i < files.length; i++)
+        {
+            bytes += files[i].length();
+            if ((i >= maxFiles || bytes > maxBytes) && !files[i].delete())
+            {
+                log.debug("Unable to delete old round recording {}", files[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,553 @@
+package com.BaPB;
+
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.coords.WorldPoint;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary format of a round recording: the tick by tick inputs of the {@link RoundTracker}, so a
+ * round can be inspected or replayed after the fact.
+ *
+ * A recording is a header (magic, version, start time) followed by records, each starting with
+ * a tag byte. Events (tracked chat messages, the scroll, the wave complete interface) are
+ * written as they happen and belong to the tick record that follows them. A tick record only
+ * holds what changed since the previous tick: the position as a delta, the detection inputs,
+ * and the wave and lobby the tracker detected. Runs of ticks where nothing changed collapse
+ * into one idle record. Numbers are varints, so a typical tick is one to four bytes.
+ *
+ * Records never refer forward, a recording is read front to back in constant memory.
+ */
+public final class RoundRecording
+{
+    static final int MAGIC = 0x42415252; // "BARR"
+    static final int VERSION = 1;
+
+    // Record tags, a tick tag carries the mask of the fields that follow
+    private static final int CHAT = 1;
+    private static final int SCROLL = 2;
+    private static final int WAVE_COMPLETE = 3;
+    private static final int TICK = 0x10;
+    private static final int IDLE = 0x20;
+
+    // Tick fields
+    private static final int POSITION = 1;
+    private static final int INPUTS = 2;
+    private static final int DETECTED = 4;
+
+    /**
+     * Detection input flags, packed into one byte with the role widgets in the high bits.
+     */
+    public static final int IN_GAME = 1;
+    public static final int ROLE_HORN = 2;
+    public static final int INSTANCED = 4;
+    public static final int NO_POSITION = 8;
+    private static final int ROLE_WIDGET_SHIFT = 4;
+
+    // Only the chat types the tracker reacts to are recorded
+    private static final ChatMessageType[] CHAT_TYPES = {ChatMessageType.GAMEMESSAGE, ChatMessageType.WELCOME};
+
+    private RoundRecording()
+    {
+    }
+
+    /**
+     * Packs the detection inputs of a tick.
+     */
+    public static int inputs(boolean inGame, boolean roleHorn, boolean instanced, int roleWidgets, boolean hasPosition)
+    {
+        return (inGame ? IN_GAME : 0)
+                | (roleHorn ? ROLE_HORN : 0)
+                | (instanced ? INSTANCED : 0)
+                | (hasPosition ? 0 : NO_POSITION)
+                | roleWidgets << ROLE_WIDGET_SHIFT;
+    }
+
+    /**
+     * Encodes one recording in memory. Not thread safe.
+     */
+    public static final class Writer
+    {
+        private final long startMillis;
+        private byte[] buffer = new byte[4096];
+        private int size;
+
+        private int ticks;
+        private int idle;
+        private boolean eventsPending;
+        private boolean first = true;
+        private int lastX;
+        private int lastY;
+        private int lastPlane;
+        private int lastInputs;
+        private int lastWave;
+        private int lastLobby;
+
+        public Writer(long startMillis)
+        {
+            this.startMillis = startMillis;
+            writeInt(MAGIC);
+            writeByte(VERSION);
+            writeVarLong(startMillis);
+        }
+
+        public long getStartMillis()
+        {
+            return startMillis;
+        }
+
+        public int getTickCount()
+        {
+            return ticks;
+        }
+
+        /**
+         * Encoded size so far in bytes, not counting a run of idle ticks still being counted.
+         */
+        public int size()
+        {
+            return size;
+        }
+
+        public void chat(ChatMessageType type, String message)
+        {
+            int code = chatCode(type);
+            if (code < 0)
+            {
+                return;
+            }
+
+            event(CHAT);
+            writeByte(code);
+            writeString(message);
+        }
+
+        /**
+         * Records the scroll icons in slot order and the local player's slot, -1 if they are
+         * not on the scroll. Names are not recorded.
+         */
+        public void scroll(int[] icons, int localSlot)
+        {
+            event(SCROLL);
+            writeByte(localSlot + 1);
+            writeVarInt(icons.length);
+            for (int icon : icons)
+            {
+                writeVarInt(zigZag(icon));
+            }
+        }
+
+        public void waveComplete(String rewardText)
+        {
+            event(WAVE_COMPLETE);
+            writeString(rewardText);
+        }
+
+        /**
+         * Ends the current tick, after every event that happened during it.
+         *
+         * @param position local player position, null if there is none
+         * @param inputs   detection inputs from {@link #inputs}
+         */
+        public void tick(WorldPoint position, int inputs, int wave, int lobby)
+        {
+            int fields = 0;
+            if (position != null && (first || position.getX() != lastX || position.getY() != lastY || position.getPlane() != lastPlane))
+            {
+                fields |= POSITION;
+            }
+            if (first || inputs != lastInputs)
+            {
+                fields |= INPUTS;
+            }
+            if (first || wave != lastWave || lobby != lastLobby)
+            {
+                fields |= DETECTED;
+            }
+            first = false;
+            ticks++;
+
+            if (fields == 0 && !eventsPending)
+            {
+                idle++;
+                return;
+            }
+
+            flushIdle();
+            eventsPending = false;
+            writeByte(TICK | fields);
+            if ((fields & POSITION) != 0)
+            {
+                writeVarInt(zigZag(position.getX() - lastX));
+                writeVarInt(zigZag(position.getY() - lastY));
+                writeVarInt(zigZag(position.getPlane() - lastPlane));
+                lastX = position.getX();
+                lastY = position.getY();
+                lastPlane = position.getPlane();
+            }
+            if ((fields & INPUTS) != 0)
+            {
+                writeByte(inputs);
+                lastInputs = inputs;
+            }
+            if ((fields & DETECTED) != 0)
+            {
+                writeByte(wave);
+                writeByte(lobby);
+                lastWave = wave;
+                lastLobby = lobby;
+            }
+        }
+
+        /**
+         * Returns the recording so far. Events after the last tick are skipped when read.
+         */
+        public byte[] toByteArray()
+        {
+            flushIdle();
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void event(int tag)
+        {
+            flushIdle();
+            eventsPending = true;
+            writeByte(tag);
+        }
+
+        private void flushIdle()
+        {
+            if (idle > 0)
+            {
+                writeByte(IDLE);
+                writeVarInt(idle);
+                idle = 0;
+            }
+        }
+
+        private void writeString(String value)
+        {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void writeInt(int value)
+        {
+            writeByte(value >>> 24);
+            writeByte(value >>> 16);
+            writeByte(value >>> 8);
+            writeByte(value);
+        }
+
+        private void writeVarInt(int value)
+        {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeVarLong(long value)
+        {
+            while ((value & ~0x7FL) != 0)
+            {
+                writeByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        private void writeByte(int value)
+        {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        private void ensure(int bytes)
+        {
+            if (size + bytes > buffer.length)
+            {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+            }
+        }
+    }
+
+    /**
+     * Streams a recording one tick at a time. The getters describe the tick {@link #next}
+     * moved to and are only valid until the next call.
+     */
+    public static final class Reader implements Closeable
+    {
+        private final DataInputStream in;
+        private final long startMillis;
+
+        private int tick = -1;
+        private int idle;
+        private int x;
+        private int y;
+        private int plane;
+        private int inputs;
+        private int wave;
+        private int lobby;
+
+        private final List<ChatMessageType> chatTypes = new ArrayList<>();
+        private final List<String> chatMessages = new ArrayList<>();
+        private int[] scrollIcons;
+        private int scrollLocalSlot;
+        private String waveComplete;
+
+        /**
+         * @throws IOException if the stream is not a recording this version can read
+         */
+        public Reader(InputStream in) throws IOException
+        {
+            this.in = new DataInputStream(in);
+            if (this.in.readInt() != MAGIC)
+            {
+                throw new IOException("Not a round recording");
+            }
+            int version = this.in.readUnsignedByte();
+            if (version != VERSION)
+            {
+                throw new IOException("Unsupported round recording version " + version);
+            }
+            startMillis = readVarLong();
+        }
+
+        public long getStartMillis()
+        {
+            return startMillis;
+        }
+
+        /**
+         * Moves to the next tick, false at the end of the recording.
+         */
+        public boolean next() throws IOException
+        {
+            chatTypes.clear();
+            chatMessages.clear();
+            scrollIcons = null;
+            waveComplete = null;
+
+            if (idle > 0)
+            {
+                idle--;
+                tick++;
+                return true;
+            }
+
+            while (true)
+            {
+                int tag = in.read();
+                if (tag < 0)
+                {
+                    return false;
+                }
+
+                switch (tag)
+                {
+                    case CHAT:
+                        chatTypes.add(CHAT_TYPES[in.readUnsignedByte()]);
+                        chatMessages.add(readString());
+                        continue;
+                    case SCROLL:
+                        scrollLocalSlot = in.readUnsignedByte() - 1;
+                        scrollIcons = new int[readVarInt()];
+                        for (int i = 0; i < scrollIcons.length; i++)
+                        {
+                            scrollIcons[i] = unZigZag(readVarInt());
+                        }
+                        continue;
+                    case WAVE_COMPLETE:
+                        waveComplete = readString();
+                        continue;
+                    case IDLE:
+                        idle = readVarInt() - 1;
+                        tick++;
+                        return true;
+                }
+
+                if ((tag & ~(POSITION | INPUTS | DETECTED)) != TICK)
+                {
+                    throw new IOException("Unknown record " + tag + " after tick " + tick);
+                }
+
+                if ((tag & POSITION) != 0)
+                {
+                    x += unZigZag(readVarInt());
+                    y += unZigZag(readVarInt());
+                    plane += unZigZag(readVarInt());
+                }
+                if ((tag & INPUTS) != 0)
+                {
+                    inputs = in.readUnsignedByte();
+                }
+                if ((tag & DETECTED) != 0)
+                {
+                    wave = in.readUnsignedByte();
+                    lobby = in.readUnsignedByte();
+                }
+                tick++;
+                return true;
+            }
+        }
+
+        /**
+         * Index of the current tick, from 0.
+         */
+        public int getTick()
+        {
+            return tick;
+        }
+
+        /**
+         * Position of the local player, null if there was none.
+         */
+        public WorldPoint getPosition()
+        {
+            return (inputs & NO_POSITION) != 0 ? null : new WorldPoint(x, y, plane);
+        }
+
+        public boolean isInGame()
+        {
+            return (inputs & IN_GAME) != 0;
+        }
+
+        public boolean hasRoleHorn()
+        {
+            return (inputs & ROLE_HORN) != 0;
+        }
+
+        public boolean isInstanced()
+        {
+            return (inputs & INSTANCED) != 0;
+        }
+
+        /**
+         * Open role widgets, same bits as {@link RoundTracker#getOpenRoleWidgets()}.
+         */
+        public int getRoleWidgets()
+        {
+            return inputs >>> ROLE_WIDGET_SHIFT;
+        }
+
+        /**
+         * Wave the tracker detected on this tick, 0 outside a wave.
+         */
+        public int getWave()
+        {
+            return wave;
+        }
+
+        /**
+         * Lobby the tracker detected on this tick, 0 outside a lobby.
+         */
+        public int getLobby()
+        {
+            return lobby;
+        }
+
+        public int getChatCount()
+        {
+            return chatMessages.size();
+        }
+
+        public ChatMessageType getChatType(int i)
+        {
+            return chatTypes.get(i);
+        }
+
+        public String getChatMessage(int i)
+        {
+            return chatMessages.get(i);
+        }
+
+        /**
+         * Scroll icons read on this tick in slot order, null if the scroll was not read.
+         */
+        public int[] getScrollIcons()
+        {
+            return scrollIcons;
+        }
+
+        public int getScrollLocalSlot()
+        {
+            return scrollLocalSlot;
+        }
+
+        /**
+         * Reward text of the wave complete interface if it loaded on this tick, else null.
+         */
+        public String getWaveComplete()
+        {
+            return waveComplete;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            in.close();
+        }
+
+        private String readString() throws IOException
+        {
+            byte[] bytes = new byte[readVarInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int readVarInt() throws IOException
+        {
+            return (int) readVarLong();
+        }
+
+        private long readVarLong() throws IOException
+        {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7)
+            {
+                int b = in.read();
+                if (b < 0)
+                {
+                    throw new EOFException();
+                }
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint after tick " + tick);
+        }
+    }
+
+    private static int chatCode(ChatMessageType type)
+    {
+        for (int code = 0; code < CHAT_TYPES.length; code++)
+        {
+            if (CHAT_TYPES[code] == type)
+            {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    private static int zigZag(int value)
+    {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,210 @@
+package com.BaPB;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Immutable copy of everything a round submission needs, captured on the client thread the
+ * moment the round ends.
+ *
+ * The live {@link Timers} and team map keep changing once the next round starts, so the
+ * submitter only ever sees this snapshot. All fields are final and the arrays are never
+ * written after construction, which makes the snapshot safe to hand to any thread and to
+ * keep around for delayed, retried or batched submission.
+ */
+public final class RoundSnapshot
+{
+    // Sentinel for a wave without a recorded QS spawn point
+    public static final int NO_SPAWN = -1;
+
+    @Getter
+    private final String format;
+    @Getter
+    private final double roundSeconds;
+    @Getter
+    private final boolean scroller;
+    @Getter
+    private final String submittedBy;
+    @Getter
+    private final String worldRegion;
+
+    private final String[] playerNames;
+    private final String[] playerRoles;
+
+    // Per wave columns, index i describes wave waveNumbers[i]. Unset times are NaN.
+    private final int[] waveNumbers;
+    private final double[] waveSeconds;
+    private final int[] qsTicks;
+    private final boolean[] goodPremove;
+    private final boolean[] reset;
+    private final int[] spawnX;
+    private final int[] spawnY;
+    private final double[] rangerDeathTimes;
+    private final double[] fighterDeathTimes;
+    private final double[] runnerDeathTimes;
+    private final double[] healerDeathTimes;
+    private final double[] queenSpawnTimes;
+
+    private RoundSnapshot(String format, double roundSeconds, boolean scroller, String submittedBy, String worldRegion, int players, int waves)
+    {
+        this.format = format;
+        this.roundSeconds = roundSeconds;
+        this.scroller = scroller;
+        this.submittedBy = submittedBy;
+        this.worldRegion = worldRegion;
+        this.playerNames = new String[players];
+        this.playerRoles = new String[players];
+        this.waveNumbers = new int[waves];
+        this.waveSeconds = new double[waves];
+        this.qsTicks = new int[waves];
+        this.goodPremove = new boolean[waves];
+        this.reset = new boolean[waves];
+        this.spawnX = new int[waves];
+        this.spawnY = new int[waves];
+        this.rangerDeathTimes = new double[waves];
+        this.fighterDeathTimes = new double[waves];
+        this.runnerDeathTimes = new double[waves];
+        this.healerDeathTimes = new double[waves];
+        this.queenSpawnTimes = new double[waves];
+    }
+
+    /**
+     * Copies the round out of the live state. Must be called on the client thread.
+     */
+    public static RoundSnapshot capture(
+            Map<String, String> currentTeam,
+            String roundFormat,
+            Timers timers,
+            boolean scroller,
+            String submittedBy,
+            String worldRegion
+    )
+    {
+        RoundSnapshot snapshot = new RoundSnapshot(
+                roundFormat,
+                timers.getRoundTimer().getElapsedSeconds(scroller),
+                scroller,
+                submittedBy,
+                worldRegion,
+                currentTeam.size(),
+                timers.getWaveCount());
+
+        int p = 0;
+        for (Map.Entry<String, String> e : currentTeam.entrySet())
+        {
+            snapshot.playerNames[p] = e.getKey();
+            snapshot.playerRoles[p] = e.getValue();
+            p++;
+        }
+
+        int w = 0;
+        for (int wave = 1; wave <= Timers.MAX_WAVE; wave++)
+        {
+            Timers.WaveData data = timers.getWaveData(wave);
+            if (data == null)
+            {
+                continue;
+            }
+
+            snapshot.waveNumbers[w] = wave;
+            snapshot.waveSeconds[w] = data.getWaveTimer().getElapsedSeconds(scroller, false);
+            snapshot.qsTicks[w] = data.getQsTimer().getRoundTicks();
+            snapshot.goodPremove[w] = data.isGoodPremove();
+            snapshot.reset[w] = data.getLobbyCount() > 1;
+
+            Lobby.RelativePoint rp = data.getRelativePoint();
+            snapshot.spawnX[w] = rp != null ? rp.getX() : NO_SPAWN;
+            snapshot.spawnY[w] = rp != null ? rp.getY() : NO_SPAWN;
+
+            snapshot.rangerDeathTimes[w] = data.getRangerDeathTime();
+            snapshot.fighterDeathTimes[w] = data.getFighterDeathTime();
+            snapshot.runnerDeathTimes[w] = data.getRunnerDeathTime();
+            snapshot.healerDeathTimes[w] = data.getHealerDeathTime();
+            snapshot.queenSpawnTimes[w] = data.getQueenSpawnTime();
+            w++;
+        }
+
+        return snapshot;
+    }
+
+    public int getPlayerCount()
+    {
+        return playerNames.length;
+    }
+
+    public String getPlayerName(int player)
+    {
+        return playerNames[player];
+    }
+
+    public String getPlayerRole(int player)
+    {
+        return playerRoles[player];
+    }
+
+    public int getWaveCount()
+    {
+        return waveNumbers.length;
+    }
+
+    public int getWaveNumber(int wave)
+    {
+        return waveNumbers[wave];
+    }
+
+    public double getWaveSeconds(int wave)
+    {
+        return waveSeconds[wave];
+    }
+
+    public int getQsTicks(int wave)
+    {
+        return qsTicks[wave];
+    }
+
+    public boolean isGoodPremove(int wave)
+    {
+        return goodPremove[wave];
+    }
+
+    public boolean isReset(int wave)
+    {
+        return reset[wave];
+    }
+
+    public int getSpawnX(int wave)
+    {
+        return spawnX[wave];
+    }
+
+    public int getSpawnY(int wave)
+    {
+        return spawnY[wave];
+    }
+
+    public double getRangerDeathTime(int wave)
+    {
+        return rangerDeathTimes[wave];
+    }
+
+    public double getFighterDeathTime(int wave)
+    {
+        return fighterDeathTimes[wave];
+    }
+
+    public double getRunnerDeathTime(int wave)
+    {
+        return runnerDeathTimes[wave];
+    }
+
+    public double getHealerDeathTime(int wave)
+    {
+        return healerDeathTimes[wave];
+    }
+
+    public double getQueenSpawnTime(int wave)
+    {
+        return queenSpawnTimes[wave];
+    }
+}
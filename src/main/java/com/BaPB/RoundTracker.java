@@ -0,0 +1,584 @@
+package com.BaPB;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.coords.WorldPoint;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wave/lobby detection, round timing and team classification, without a live client.
+ *
+ * The plugin forwards the events it subscribes to and answers the few questions that need the
+ * client through a {@link Source}. Everything that decides what a round's times and payload
+ * are lives here, so a recorded stream of inputs can be replayed through exactly the same code.
+ */
+@Slf4j
+public class RoundTracker
+{
+    private static final String WAVE_START_PREFIX = "---- Wave:";
+    private static final String PENANCE_KILLED_PREFIX = "All of the Penance ";
+    private static final String QUEEN_ARRIVED_MESSAGE = "The Queen has arrived and you can no longer use the horn of glory!";
+    private static final String ENDGAME_REWARD_NEEDLE_TEXT = "<br>5";
+    public static final int START_WAVE = 1;
+
+    // What a chat message means to the tracker
+    private static final int NOT_TRACKED = 0;
+    private static final int WAVE_START = 1;
+    private static final int PENANCE_DEATH = 2;
+    private static final int QUEEN_SPAWN = 3;
+
+    // Constants for role-specific widget group IDs
+    public static final int BA_ATTACKER_GROUP_ID = 485;
+    public static final int BA_COLLECTOR_GROUP_ID = 486;
+    public static final int BA_DEFENDER_GROUP_ID = 487;
+    public static final int BA_HEALER_GROUP_ID = 488;
+
+    // Role horns, sorted so membership is a binary search over a primitive array
+    private static final int[] ROLE_HORN_IDS = sortedIds(
+            net.runelite.api.gameval.ItemID.BARBASSAULT_ATT_HORN_01,
+            net.runelite.api.gameval.ItemID.BARBASSAULT_ATT_HORN_02,
+            net.runelite.api.gameval.ItemID.BARBASSAULT_ATT_HORN_03,
+            net.runelite.api.gameval.ItemID.BARBASSAULT_ATT_HORN_04,
+            net.runelite.api.gameval.ItemID.BARBASSAULT_ATT_HORN_05,
+            net.runelite.api.gameval.ItemID.BARBASSAULT_DEFENDER_HORN,
+            net.runelite.api.gameval.ItemID.BARBASSAULT_HORN_COLLECTOR,
+            net.runelite.api.gameval.ItemID.BARBASSAULT_HEAL_HORN_01,
+            net.runelite.api.gameval.ItemID.BARBASSAULT_HEAL_HORN_02,
+            net.runelite.api.gameval.ItemID.BARBASSAULT_HEAL_HORN_03,
+            net.runelite.api.gameval.ItemID.BARBASSAULT_HEAL_HORN_04,
+            net.runelite.api.gameval.ItemID.BARBASSAULT_HEAL_HORN_05);
+
+    /**
+     * The parts of the game state that are read rather than pushed by events.
+     */
+    public interface Source
+    {
+        int getTickCount();
+
+        /**
+         * World location of the local player, null if there is none.
+         */
+        WorldPoint getLocalPosition();
+
+        boolean isInstanced();
+    }
+
+    private final Source source;
+    private final Timers timers = new Timers();
+    private final Lobby lobby = new Lobby();
+    private final TickState tickState = new TickState(lobby);
+    private final PenanceDeathParser penanceDeathParser = new PenanceDeathParser();
+
+    // Kept up to date from the varbit, inventory and widget events, see inWave()
+    private int inGameBit = 0;
+    private boolean hasRoleHorn = false;
+    private int openRoleWidgets = 0; // bit per role widget group, 1 << (groupId - BA_ATTACKER_GROUP_ID)
+    private int currentWave = 0;
+
+    private String roundFormat;
+    private String roundRole;
+    private boolean leader = false;
+    private final Map<String, String> currentTeam = new HashMap<>();
+
+    public RoundTracker(Source source)
+    {
+        this.source = source;
+    }
+
+    public Timers getTimers()
+    {
+        return timers;
+    }
+
+    /**
+     * Format of the current round, null until the scroll identified a known one.
+     */
+    public String getRoundFormat()
+    {
+        return roundFormat;
+    }
+
+    /**
+     * PB role of the local player this round, null until the scroll was read.
+     */
+    public String getRoundRole()
+    {
+        return roundRole;
+    }
+
+    public boolean isLeader()
+    {
+        return leader;
+    }
+
+    public int getInGameBit()
+    {
+        return inGameBit;
+    }
+
+    public boolean hasRoleHorn()
+    {
+        return hasRoleHorn;
+    }
+
+    /**
+     * Open role widgets, bit {@code groupId - BA_ATTACKER_GROUP_ID} per group.
+     */
+    public int getOpenRoleWidgets()
+    {
+        return openRoleWidgets;
+    }
+
+    public boolean isInstanced()
+    {
+        return source.isInstanced();
+    }
+
+    /**
+     * Clears all round and detection state, for plugin start up and shut down.
+     */
+    public void reset()
+    {
+        timers.resetAll();
+        currentTeam.clear();
+        inGameBit = 0;
+        hasRoleHorn = false;
+        openRoleWidgets = 0;
+        tickState.invalidate();
+    }
+
+    /* -------------------- Detection inputs -------------------- */
+
+    public void setInGameBit(int value)
+    {
+        inGameBit = value;
+        tickState.invalidate();
+    }
+
+    public void setHasRoleHorn(boolean value)
+    {
+        hasRoleHorn = value;
+        tickState.invalidate();
+    }
+
+    public void setRoleWidgetOpen(int groupId, boolean open)
+    {
+        if (!isRoleWidget(groupId))
+        {
+            return;
+        }
+
+        if (open)
+        {
+            openRoleWidgets |= roleWidgetBit(groupId);
+        }
+        else
+        {
+            openRoleWidgets &= ~roleWidgetBit(groupId);
+        }
+        tickState.invalidate();
+    }
+
+    /**
+     * Forgets the cached interface and inventory flags, which are rebuilt from scratch after
+     * logging back in.
+     */
+    public void clearInterfaces()
+    {
+        inGameBit = 0;
+        hasRoleHorn = false;
+        openRoleWidgets = 0;
+        tickState.invalidate();
+    }
+
+    public static boolean isRoleWidget(int groupId)
+    {
+        return groupId >= BA_ATTACKER_GROUP_ID && groupId <= BA_HEALER_GROUP_ID;
+    }
+
+    public static boolean isRoleHorn(int itemId)
+    {
+        return Arrays.binarySearch(ROLE_HORN_IDS, itemId) >= 0;
+    }
+
+    /* -------------------- Game tick -------------------- */
+
+    /**
+     * Advances the timers by one tick.
+     *
+     * @param wantSpawnPoint whether the QS spawn point should be recorded when a wave ends,
+     *                       only the scroller's is ever recorded
+     * @return the wave that ended on this tick, 0 if none did
+     */
+    public int onGameTick(boolean wantSpawnPoint)
+    {
+        TickState state = currentState();
+        int detectedWave = state.getWave();
+        int detectedLobby = state.getLobbyId();
+
+        // Premove and spawn point are only used on a lobby <-> wave transition
+        boolean transition = timers.isTransition(detectedWave);
+        boolean goodPremove = transition && state.isGoodPremove();
+
+        // Only scroller should calculate relative spawn point
+        Lobby.RelativePoint relPoint = transition && leader && wantSpawnPoint ? state.getRelativePoint() : null;
+
+        int endedWave = transition && detectedWave == 0 ? timers.lastWave : 0;
+        timers.updateState(detectedWave, detectedLobby, goodPremove, relPoint);
+        timers.onGameTick();
+        return endedWave;
+    }
+
+    /* -------------------- Chat -------------------- */
+
+    /**
+     * Handles a chat message whose message node still holds the message itself.
+     *
+     * @return the wave this message started, 0 if it did not start one
+     */
+    public int onChatMessage(ChatMessageType type, String message)
+    {
+        return onChatMessage(type, message, message);
+    }
+
+    /**
+     * Handles a chat message.
+     *
+     * @param nodeValue value of the message node, which the ba minigame plugin appends the
+     *                  Penance death times to
+     * @return the wave this message started, 0 if it did not start one
+     */
+    public int onChatMessage(ChatMessageType type, String message, String nodeValue)
+    {
+        switch (messageKind(type, message))
+        {
+            case WAVE_START:
+                return onWaveStart(message, skipTags(message, 0) + WAVE_START_PREFIX.length());
+            case PENANCE_DEATH:
+                checkNpcDeaths(nodeValue != null ? nodeValue : message);
+                break;
+            case QUEEN_SPAWN:
+                onQueenSpawn();
+                break;
+        }
+        return 0;
+    }
+
+    /**
+     * The text {@link #onChatMessage} parses for this chat message, null if the tracker does
+     * not react to it. Handling this text as the message gives the same result again.
+     */
+    public static String parsedText(ChatMessageType type, String message, String nodeValue)
+    {
+        switch (messageKind(type, message))
+        {
+            case NOT_TRACKED:
+                return null;
+            case PENANCE_DEATH:
+                return nodeValue != null ? nodeValue : message;
+            default:
+                return message;
+        }
+    }
+
+    private static int messageKind(ChatMessageType type, String message)
+    {
+        // Everything we react to is a game message, except the Penance death messages which
+        // arrive as WELCOME messages for the Healer/Collector/Defender roles
+        if (type != ChatMessageType.GAMEMESSAGE && type != ChatMessageType.WELCOME)
+        {
+            return NOT_TRACKED;
+        }
+
+        final int start = skipTags(message, 0);
+        if (start >= message.length())
+        {
+            return NOT_TRACKED;
+        }
+
+        switch (message.charAt(start))
+        {
+            case '-':
+                if (type == ChatMessageType.GAMEMESSAGE && message.startsWith(WAVE_START_PREFIX, start))
+                {
+                    return WAVE_START;
+                }
+                break;
+            case 'A':
+                if (message.startsWith(PENANCE_KILLED_PREFIX, start))
+                {
+                    return PENANCE_DEATH;
+                }
+                break;
+            case 'T':
+                if (type == ChatMessageType.GAMEMESSAGE
+                        && message.length() - start == QUEEN_ARRIVED_MESSAGE.length()
+                        && message.startsWith(QUEEN_ARRIVED_MESSAGE, start))
+                {
+                    return QUEEN_SPAWN;
+                }
+                break;
+        }
+        return NOT_TRACKED;
+    }
+
+    private int onWaveStart(String message, int from)
+    {
+        final int wave = parseWaveNumber(message, from);
+        if (wave < 0)
+        {
+            log.debug("Can't parse wave number from: {}", message);
+            return 0;
+        }
+
+        currentWave = wave;
+        tickState.invalidate();
+
+        if (currentWave == START_WAVE)
+        {
+            timers.resetAll();
+            timers.startRound();
+        }
+        return wave;
+    }
+
+    private void onQueenSpawn()
+    {
+        if (currentState().getWave() != Timers.MAX_WAVE)
+        {
+            return;
+        }
+
+        double currentW10Time = timers.getWaveTimer(Timers.MAX_WAVE).getElapsedSeconds(leader, false);
+        timers.setQueenSpawnTime(currentW10Time);
+    }
+
+    private void checkNpcDeaths(String message)
+    {
+        // NOTE: This relies on the ba minigame plugin appending the time, maybe switch to own timers in the future
+        if (!penanceDeathParser.parse(message))
+        {
+            return;
+        }
+
+        final double deathTime = penanceDeathParser.getSeconds();
+        if (Double.isNaN(deathTime))
+        {
+            log.debug("Cant parse death time from: {}", message);
+            return;
+        }
+
+        int waveNum = currentState().getWave();
+        if (waveNum == 0)
+        {
+            log.debug("Can't set death times outside of wave");
+            return;
+        }
+
+        final PenanceDeathParser.Penance npc = penanceDeathParser.getNpc();
+        if (npc == null)
+        {
+            return;
+        }
+
+        switch (npc)
+        {
+            case RANGERS:
+                timers.setRangerDeath(waveNum, deathTime);
+                break;
+            case FIGHTERS:
+                timers.setFighterDeath(waveNum, deathTime);
+                break;
+            case RUNNERS:
+                timers.setRunnerDeath(waveNum, deathTime);
+                break;
+            case HEALERS:
+                timers.setHealerDeath(waveNum, deathTime);
+                break;
+        }
+    }
+
+    /**
+     * Parses the number following "---- Wave:", -1 if there is none.
+     */
+    private static int parseWaveNumber(String message, int from)
+    {
+        int i = from;
+        final int length = message.length();
+        while (i < length && message.charAt(i) == ' ')
+        {
+            i++;
+        }
+
+        int wave = 0;
+        int digits = 0;
+        for (; i < length; i++)
+        {
+            final char c = message.charAt(i);
+            if (c < '0' || c > '9' || digits == 3)
+            {
+                break;
+            }
+            wave = wave * 10 + (c - '0');
+            digits++;
+        }
+        return digits == 0 ? -1 : wave;
+    }
+
+    /**
+     * Returns the index of the first character at or after {@code from} that is not part of a
+     * leading {@code <tag>}.
+     */
+    private static int skipTags(String message, int from)
+    {
+        int i = from;
+        while (i < message.length() && message.charAt(i) == '<')
+        {
+            final int close = message.indexOf('>', i);
+            if (close < 0)
+            {
+                break;
+            }
+            i = close + 1;
+        }
+        return i;
+    }
+
+    /* -------------------- Team -------------------- */
+
+    /**
+     * The scroll was opened, the format is read again from the next scan.
+     */
+    public void onScrollLoaded()
+    {
+        roundFormat = null;
+    }
+
+    /**
+     * Classifies the team on the scroll and keeps the local player's role and the team to
+     * submit. Returns the composition, null if it is not a known format.
+     */
+    public TeamClassifier.Composition onTeamScanned(TeamScanner.Scan scan)
+    {
+        TeamClassifier.Composition team = TeamClassifier.classify(scan);
+        roundFormat = team != null ? team.getFormat() : null;
+
+        int localSlot = scan.getLocalSlot();
+        if (localSlot >= 0)
+        {
+            //this checks which location the client is in the scroll
+            roundRole = team != null ? team.getPlayerRole(localSlot) : roleKey(scan.getIcon(localSlot));
+            log.debug("Your role has been identified as {} in a {} run", roundRole, roundFormat);
+        }
+        leader = scan.isLeader();
+
+        // Only save current team for a known format
+        currentTeam.clear();
+        if (team != null)
+        {
+            for (int slot = 0; slot < TeamScanner.PLAYERS; slot++)
+            {
+                String role = team.getTeamRole(slot);
+                if (role != null)
+                {
+                    currentTeam.put(scan.getName(slot), role);
+                }
+            }
+            log.debug("Current Team: {}", currentTeam);
+        }
+        else
+        {
+            log.debug("Not a valid leech, five man or duo heal run");
+        }
+        return team;
+    }
+
+    /**
+     * Base role key for a scroll icon, empty if the icon is not a role.
+     */
+    public static String roleKey(int icon)
+    {
+        Role role = Role.fromIcon(icon);
+        return role != null ? role.getKey() : "";
+    }
+
+    /* -------------------- Round end -------------------- */
+
+    /**
+     * Handles the wave complete interface. If it is the end of the round, stops every timer
+     * and returns the round time in seconds, NaN otherwise.
+     */
+    public double onWaveComplete(String rewardText)
+    {
+        double roundSeconds = timers.getRoundSeconds(leader);
+        if (rewardText == null || !rewardText.contains(ENDGAME_REWARD_NEEDLE_TEXT) || roundSeconds <= 0)
+        {
+            return Double.NaN;
+        }
+
+        timers.stopAll();
+        return roundSeconds;
+    }
+
+    /**
+     * Captures the round that just ended and forgets its format. Call after
+     * {@link #onWaveComplete} reported the end of the round.
+     */
+    public RoundSnapshot finishRound(String submittedBy, String worldRegion)
+    {
+        RoundSnapshot round = RoundSnapshot.capture(currentTeam, roundFormat, timers, leader, submittedBy, worldRegion);
+        roundFormat = null;
+        return round;
+    }
+
+    /* -------------------- Detection -------------------- */
+
+    /**
+     * Returns the BA state for the current tick, detecting it at most once per tick.
+     */
+    public TickState currentState()
+    {
+        int tick = source.getTickCount();
+        if (!tickState.isCurrent(tick))
+        {
+            tickState.update(tick, inWave(), source.getLocalPosition(), leader);
+        }
+        return tickState;
+    }
+
+    private int inWave()
+    {
+        // This method centralizes wave detection by combining multiple checks:
+        // 1. Verifies inGameBit is 1 (player is in a BA game).
+        // 2. Confirms the player is in an instanced region (BA is always instanced).
+        // 3. Checks for a role-specific horn in the inventory.
+        // 4. Ensures a role-specific widget is loaded (indicating the player has a role).
+        // 5. Validates that currentWave is a valid number between 1 and 10.
+        // Returns the wave number (1-10) if one condition is met; otherwise, returns 0.
+        // The in-game, horn and widget flags are cached from events, so this is only field reads.
+
+        if ((inGameBit == 1 || hasRoleHorn || openRoleWidgets != 0) && source.isInstanced())
+        {
+            if (currentWave < 1 || currentWave > Timers.MAX_WAVE)
+            {
+                return 0;
+            }
+            return currentWave;
+        }
+        return 0;
+    }
+
+    private static int roleWidgetBit(int groupId)
+    {
+        return 1 << (groupId - BA_ATTACKER_GROUP_ID);
+    }
+
+    private static int[] sortedIds(int... ids)
+    {
+        Arrays.sort(ids);
+        return ids;
+    }
+}
@@ -0,0 +1,607 @@
+package com.BaPB;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Append-only store of every finished round, one memory mapped file per column.
+ *
+ * Each column holds a fixed number of bytes per round, the per-wave columns one value for
+ * each of the 10 waves, so reading a stat over years of rounds is a sequential walk over the
+ * few columns it needs. Format and role names are stored as codes into a dictionary file.
+ * The header holds the schema version and the number of committed rounds, it is updated
+ * after the columns so a round torn by a crash is never counted.
+ *
+ * Rounds can be looked up by day, format and role through an in-memory index that is built
+ * from those columns on open.
+ */
+@Slf4j
+public class RunHistory
+{
+    static final int SCHEMA_VERSION = 1;
+
+    private static final int MAGIC = 0x42415248; // "BARH"
+    // Version read from a header that was created but never reached the disk
+    private static final int NOT_WRITTEN = 0;
+    private static final int HEADER_SIZE = 16;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_ROWS = 8;
+    private static final String HEADER_FILE = "header.bin";
+    private static final String DICTIONARY_FILE = "dictionary.txt";
+
+    // Columns are grown (and remapped) this many rounds at a time
+    private static final int GROWTH_ROWS = 512;
+    private static final int WAVES = Timers.MAX_WAVE;
+    // Dictionary code of a missing format or role
+    public static final short NONE = -1;
+
+    // Bits of the per-wave flags column
+    private static final int WAVE_PRESENT = 1;
+    private static final int WAVE_GOOD_PREMOVE = 1 << 1;
+    private static final int WAVE_RESET = 1 << 2;
+
+    private final File directory;
+
+    private RandomAccessFile headerFile;
+    private MappedByteBuffer header;
+    private final List<Column> columns = new ArrayList<>();
+    private int rows;
+
+    // Per round columns
+    private final Column timestamp = column("timestamp", 8);
+    private final Column format = column("format", 2);
+    private final Column role = column("role", 2);
+    private final Column roundSeconds = column("round_time", 8);
+    private final Column scroller = column("scroller", 1);
+
+    // Per wave columns, slot wave - 1
+    private final Column waveFlags = column("wave_flags", WAVES);
+    private final Column waveSeconds = column("wave_time", WAVES * 8);
+    private final Column qsTicks = column("qs_ticks", WAVES * 4);
+    private final Column spawn = column("qs_spawn", WAVES * 2);
+    private final Column rangerDeaths = column("ranger_death_time", WAVES * 8);
+    private final Column fighterDeaths = column("fighter_death_time", WAVES * 8);
+    private final Column runnerDeaths = column("runner_death_time", WAVES * 8);
+    private final Column healerDeaths = column("healer_death_time", WAVES * 8);
+    private final Column queenSpawn = column("queen_spawn_time", 8);
+
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Short> codes = new HashMap<>();
+    private FileOutputStream dictionaryOut;
+
+    // Index: day -> rounds, dictionary code -> rounds
+    private final NavigableMap<Long, BitSet> byDay = new TreeMap<>();
+    private final Map<Short, BitSet> byFormat = new HashMap<>();
+    private final Map<Short, BitSet> byRole = new HashMap<>();
+
+    public RunHistory(File directory)
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Maps the store, creating it if needed, and builds the index. A store written with a
+     * different schema version is moved aside and a new one is started.
+     */
+    public synchronized void open() throws IOException
+    {
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        File headerPath = new File(directory, HEADER_FILE);
+        int version = headerPath.exists() ? readVersion(headerPath) : NOT_WRITTEN;
+        if (version != NOT_WRITTEN && version != SCHEMA_VERSION)
+        {
+            moveAside();
+        }
+
+        headerFile = new RandomAccessFile(headerPath, "rw");
+        header = headerFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (version != SCHEMA_VERSION)
+        {
+            // Reaches the disk with the first round, until then the store is still empty
+            header.putInt(0, MAGIC);
+            header.putInt(HEADER_VERSION, SCHEMA_VERSION);
+            header.putInt(HEADER_ROWS, 0);
+        }
+        rows = header.getInt(HEADER_ROWS);
+
+        for (Column column : columns)
+        {
+            column.open(rows);
+        }
+
+        loadDictionary();
+        buildIndex();
+        log.debug("Opened run history with {} rounds", rows);
+    }
+
+    public synchronized void close()
+    {
+        for (Column column : columns)
+        {
+            column.close();
+        }
+
+        closeQuietly(headerFile);
+        headerFile = null;
+        header = null;
+
+        if (dictionaryOut != null)
+        {
+            try
+            {
+                dictionaryOut.close();
+            }
+            catch (IOException e)
+            {
+                log.debug("Unable to close the run history dictionary", e);
+            }
+            dictionaryOut = null;
+        }
+
+        dictionary.clear();
+        codes.clear();
+        byDay.clear();
+        byFormat.clear();
+        byRole.clear();
+        rows = 0;
+    }
+
+    /**
+     * Appends a round and commits it.
+     *
+     * @param playerRole the PB role of the local player, e.g. "Leech Healer"
+     */
+    public synchronized void append(RoundSnapshot round, String playerRole, long timestampMillis) throws IOException
+    {
+        if (header == null)
+        {
+            throw new IOException("Run history is not open");
+        }
+
+        int row = rows;
+        for (Column column : columns)
+        {
+            column.ensureCapacity(row + 1);
+        }
+
+        short formatCode = encode(round.getFormat());
+        short roleCode = encode(playerRole);
+
+        timestamp.buffer.putLong(timestamp.offset(row), timestampMillis);
+        format.buffer.putShort(format.offset(row), formatCode);
+        role.buffer.putShort(role.offset(row), roleCode);
+        roundSeconds.buffer.putDouble(roundSeconds.offset(row), round.getRoundSeconds());
+        scroller.buffer.put(scroller.offset(row), (byte) (round.isScroller() ? 1 : 0));
+        queenSpawn.buffer.putDouble(queenSpawn.offset(row), Double.NaN);
+
+        // Waves that were never recorded read back as absent
+        for (int w = 0; w < WAVES; w++)
+        {
+            waveFlags.buffer.put(waveFlags.offset(row) + w, (byte) 0);
+        }
+
+        for (int i = 0; i < round.getWaveCount(); i++)
+        {
+            int slot = round.getWaveNumber(i) - 1;
+            int flags = WAVE_PRESENT
+                    | (round.isGoodPremove(i) ? WAVE_GOOD_PREMOVE : 0)
+                    | (round.isReset(i) ? WAVE_RESET : 0);
+
+            waveFlags.buffer.put(waveFlags.offset(row) + slot, (byte) flags);
+            waveSeconds.buffer.putDouble(waveSeconds.offset(row) + slot * 8, round.getWaveSeconds(i));
+            qsTicks.buffer.putInt(qsTicks.offset(row) + slot * 4, round.getQsTicks(i));
+            spawn.buffer.put(spawn.offset(row) + slot * 2, (byte) round.getSpawnX(i));
+            spawn.buffer.put(spawn.offset(row) + slot * 2 + 1, (byte) round.getSpawnY(i));
+            rangerDeaths.buffer.putDouble(rangerDeaths.offset(row) + slot * 8, round.getRangerDeathTime(i));
+            fighterDeaths.buffer.putDouble(fighterDeaths.offset(row) + slot * 8, round.getFighterDeathTime(i));
+            runnerDeaths.buffer.putDouble(runnerDeaths.offset(row) + slot * 8, round.getRunnerDeathTime(i));
+            healerDeaths.buffer.putDouble(healerDeaths.offset(row) + slot * 8, round.getHealerDeathTime(i));
+
+            if (slot == WAVES - 1)
+            {
+                queenSpawn.buffer.putDouble(queenSpawn.offset(row), round.getQueenSpawnTime(i));
+            }
+        }
+
+        for (Column column : columns)
+        {
+            column.buffer.force();
+        }
+
+        // Commit
+        rows = row + 1;
+        header.putInt(HEADER_ROWS, rows);
+        header.force();
+        index(row, timestampMillis, formatCode, roleCode);
+    }
+
+    public synchronized int size()
+    {
+        return rows;
+    }
+
+    /**
+     * Returns the rounds played between two days (inclusive, local time) with the given format
+     * and role, in the order they were recorded. Null arguments match anything.
+     */
+    public synchronized int[] find(LocalDate from, LocalDate to, String formatName, String roleName)
+    {
+        BitSet result = new BitSet(rows);
+        if (from == null && to == null)
+        {
+            result.set(0, rows);
+        }
+        else
+        {
+            long first = from != null ? from.toEpochDay() : Long.MIN_VALUE;
+            long last = to != null ? to.toEpochDay() : Long.MAX_VALUE;
+            for (BitSet day : byDay.subMap(first, true, last, true).values())
+            {
+                result.or(day);
+            }
+        }
+
+        if (formatName != null)
+        {
+            result.and(lookup(byFormat, formatName));
+        }
+        if (roleName != null)
+        {
+            result.and(lookup(byRole, roleName));
+        }
+
+        return result.stream().toArray();
+    }
+
+    public synchronized long getTimestamp(int row)
+    {
+        return timestamp.buffer.getLong(timestamp.offset(check(row)));
+    }
+
+    public synchronized String getFormat(int row)
+    {
+        return decode(format.buffer.getShort(format.offset(check(row))));
+    }
+
+    public synchronized String getRole(int row)
+    {
+        return decode(role.buffer.getShort(role.offset(check(row))));
+    }
+
+    public synchronized double getRoundSeconds(int row)
+    {
+        return roundSeconds.buffer.getDouble(roundSeconds.offset(check(row)));
+    }
+
+    public synchronized boolean isScroller(int row)
+    {
+        return scroller.buffer.get(scroller.offset(check(row))) != 0;
+    }
+
+    /**
+     * Whether anything was recorded for a wave (1..10) of a round.
+     */
+    public synchronized boolean hasWave(int row, int wave)
+    {
+        return (waveFlag(row, wave) & WAVE_PRESENT) != 0;
+    }
+
+    public synchronized boolean isGoodPremove(int row, int wave)
+    {
+        return (waveFlag(row, wave) & WAVE_GOOD_PREMOVE) != 0;
+    }
+
+    public synchronized boolean isReset(int row, int wave)
+    {
+        return (waveFlag(row, wave) & WAVE_RESET) != 0;
+    }
+
+    public synchronized double getWaveSeconds(int row, int wave)
+    {
+        return waveDouble(waveSeconds, row, wave);
+    }
+
+    public synchronized int getQsTicks(int row, int wave)
+    {
+        return hasWave(row, wave) ? qsTicks.buffer.getInt(qsTicks.offset(row) + (wave - 1) * 4) : 0;
+    }
+
+    /**
+     * QS spawn point relative to the lobby, {@link RoundSnapshot#NO_SPAWN} if none was recorded.
+     */
+    public synchronized int getSpawnX(int row, int wave)
+    {
+        return hasWave(row, wave) ? spawn.buffer.get(spawn.offset(row) + (wave - 1) * 2) : RoundSnapshot.NO_SPAWN;
+    }
+
+    public synchronized int getSpawnY(int row, int wave)
+    {
+        return hasWave(row, wave) ? spawn.buffer.get(spawn.offset(row) + (wave - 1) * 2 + 1) : RoundSnapshot.NO_SPAWN;
+    }
+
+    public synchronized double getRangerDeathTime(int row, int wave)
+    {
+        return waveDouble(rangerDeaths, row, wave);
+    }
+
+    public synchronized double getFighterDeathTime(int row, int wave)
+    {
+        return waveDouble(fighterDeaths, row, wave);
+    }
+
+    public synchronized double getRunnerDeathTime(int row, int wave)
+    {
+        return waveDouble(runnerDeaths, row, wave);
+    }
+
+    public synchronized double getHealerDeathTime(int row, int wave)
+    {
+        return waveDouble(healerDeaths, row, wave);
+    }
+
+    public synchronized double getQueenSpawnTime(int row)
+    {
+        return queenSpawn.buffer.getDouble(queenSpawn.offset(check(row)));
+    }
+
+    private int waveFlag(int row, int wave)
+    {
+        check(row);
+        if (wave < 1 || wave > WAVES)
+        {
+            throw new IndexOutOfBoundsException("wave " + wave);
+        }
+        return waveFlags.buffer.get(waveFlags.offset(row) + wave - 1);
+    }
+
+    private double waveDouble(Column column, int row, int wave)
+    {
+        return hasWave(row, wave) ? column.buffer.getDouble(column.offset(row) + (wave - 1) * 8) : Double.NaN;
+    }
+
+    private int check(int row)
+    {
+        if (row < 0 || row >= rows)
+        {
+            throw new IndexOutOfBoundsException("round " + row + " of " + rows);
+        }
+        return row;
+    }
+
+    private Column column(String name, int width)
+    {
+        Column column = new Column(name, width);
+        columns.add(column);
+        return column;
+    }
+
+    /* -------------------- Dictionary -------------------- */
+
+    private void loadDictionary() throws IOException
+    {
+        File file = new File(directory, DICTIONARY_FILE);
+        if (file.exists())
+        {
+            dropTornLine(file);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))
+            {
+                String line;
+                while ((line = reader.readLine()) != null)
+                {
+                    codes.put(line, (short) dictionary.size());
+                    dictionary.add(line);
+                }
+            }
+        }
+        dictionaryOut = new FileOutputStream(file, true);
+    }
+
+    // A value torn by a crash was never used by a round, values are synced before the round is
+    // written. It is cut off rather than terminated so the values after it keep their codes.
+    private static void dropTornLine(File file) throws IOException
+    {
+        try (RandomAccessFile dictionaryFile = new RandomAccessFile(file, "rw"))
+        {
+            long end = dictionaryFile.length();
+            while (end > 0)
+            {
+                dictionaryFile.seek(end - 1);
+                if (dictionaryFile.read() == '\n')
+                {
+                    break;
+                }
+                end--;
+            }
+
+            if (end < dictionaryFile.length())
+            {
+                log.debug("Dropping torn run history dictionary line");
+                dictionaryFile.setLength(end);
+            }
+        }
+    }
+
+    private short encode(String value) throws IOException
+    {
+        if (value == null)
+        {
+            return NONE;
+        }
+
+        Short code = codes.get(value);
+        if (code != null)
+        {
+            return code;
+        }
+
+        // Written and synced before any round refers to it
+        dictionaryOut.write((value + "\n").getBytes(StandardCharsets.UTF_8));
+        dictionaryOut.flush();
+        dictionaryOut.getFD().sync();
+
+        short added = (short) dictionary.size();
+        dictionary.add(value);
+        codes.put(value, added);
+        return added;
+    }
+
+    private String decode(short code)
+    {
+        return code >= 0 && code < dictionary.size() ? dictionary.get(code) : null;
+    }
+
+    /* -------------------- Index -------------------- */
+
+    private void buildIndex()
+    {
+        for (int row = 0; row < rows; row++)
+        {
+            index(row,
+                    timestamp.buffer.getLong(timestamp.offset(row)),
+                    format.buffer.getShort(format.offset(row)),
+                    role.buffer.getShort(role.offset(row)));
+        }
+    }
+
+    private void index(int row, long timestampMillis, short formatCode, short roleCode)
+    {
+        long day = Instant.ofEpochMilli(timestampMillis).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+        byDay.computeIfAbsent(day, d -> new BitSet()).set(row);
+        byFormat.computeIfAbsent(formatCode, c -> new BitSet()).set(row);
+        byRole.computeIfAbsent(roleCode, c -> new BitSet()).set(row);
+    }
+
+    private BitSet lookup(Map<Short, BitSet> index, String value)
+    {
+        Short code = codes.get(value);
+        BitSet rowsWithValue = code != null ? index.get(code) : null;
+        return rowsWithValue != null ? rowsWithValue : new BitSet();
+    }
+
+    /* -------------------- Files -------------------- */
+
+    private static int readVersion(File headerPath) throws IOException
+    {
+        try (RandomAccessFile file = new RandomAccessFile(headerPath, "r"))
+        {
+            if (file.length() == 0)
+            {
+                return NOT_WRITTEN;
+            }
+
+            int magic = file.length() < HEADER_SIZE ? -1 : file.readInt();
+            if (magic == 0)
+            {
+                return NOT_WRITTEN;
+            }
+            return magic == MAGIC ? file.readInt() : -1;
+        }
+    }
+
+    private void moveAside() throws IOException
+    {
+        File aside = new File(directory.getParentFile(), directory.getName() + "-" + System.currentTimeMillis());
+        if (!directory.renameTo(aside) || !directory.mkdirs())
+        {
+            throw new IOException("Unable to move the unsupported run history to " + aside);
+        }
+        log.warn("Run history has an unsupported schema version, moved it to {}", aside);
+    }
+
+    private static void closeQuietly(RandomAccessFile file)
+    {
+        if (file == null)
+        {
+            return;
+        }
+
+        try
+        {
+            file.close();
+        }
+        catch (IOException e)
+        {
+            log.debug("Unable to close run history file", e);
+        }
+    }
+
+    /**
+     * One fixed width column file, mapped for its current capacity.
+     */
+    private class Column
+    {
+        private final String name;
+        private final int width;
+        private RandomAccessFile file;
+        private MappedByteBuffer buffer;
+        private int capacity;
+
+        Column(String name, int width)
+        {
+            this.name = name;
+            this.width = width;
+        }
+
+        void open(int rows) throws IOException
+        {
+            file = new RandomAccessFile(new File(directory, name + ".col"), "rw");
+            if (file.length() < (long) rows * width)
+            {
+                throw new IOException("Run history column " + name + " is shorter than the committed rounds");
+            }
+            map(Math.max(rows, (int) (file.length() / width)));
+        }
+
+        int offset(int row)
+        {
+            return row * width;
+        }
+
+        void ensureCapacity(int rows) throws IOException
+        {
+            if (rows > capacity)
+            {
+                map(rows + GROWTH_ROWS);
+            }
+        }
+
+        private void map(int rows) throws IOException
+        {
+            // The old mapping is released once it is garbage collected
+            capacity = rows;
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) rows * width);
+        }
+
+        void close()
+        {
+            closeQuietly(file);
+            file = null;
+            buffer = null;
+            capacity = 0;
+        }
+    }
+}
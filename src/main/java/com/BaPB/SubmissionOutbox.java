@@ -0,0 +1,354 @@
+package com.BaPB;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only journal of finished rounds that still have to be submitted to the API.
+ *
+ * Every round is written (and synced) here before any network call is attempted, so a
+ * crash, an API outage or a failed token fetch never loses a run. The journal holds two
+ * kinds of records, one per line:
+ *   A &lt;id&gt; &lt;submittedBy&gt; &lt;payload json&gt;   a round waiting to be submitted
+ *   K &lt;id&gt;                              the round with this id was acknowledged
+ * On open the journal is replayed and compacted down to the pending rounds only.
+ */
+@Slf4j
+public class SubmissionOutbox
+{
+    private static final char APPEND = 'A';
+    private static final char ACK = 'K';
+    private static final char SEPARATOR = '\t';
+
+    // Rewrite the journal once this many acknowledged records have piled up
+    private static final int COMPACT_THRESHOLD = 64;
+
+    @Getter
+    public static class Entry
+    {
+        private final long id;
+        private final String submittedBy;
+        private final byte[] payload;
+
+        Entry(long id, String submittedBy, byte[] payload)
+        {
+            this.id = id;
+            this.submittedBy = submittedBy;
+            this.payload = payload;
+        }
+    }
+
+    private final File file;
+    private final int maxEntries;
+
+    // Pending rounds in submission order, id -> entry
+    private final Map<Long, Entry> pending = new LinkedHashMap<>();
+    private boolean opened;
+    // Append stream, reopened on the next write if a compaction failed without one
+    private FileOutputStream out;
+    private long nextId = 1;
+    private int acknowledged = 0;
+
+    public SubmissionOutbox(File file, int maxEntries)
+    {
+        this.file = file;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Replays the journal from disk and compacts it. Torn or unreadable lines are skipped.
+     */
+    public synchronized void open() throws IOException
+    {
+        pending.clear();
+        acknowledged = 0;
+
+        if (file.exists())
+        {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))
+            {
+                String line;
+                while ((line = reader.readLine()) != null)
+                {
+                    replay(line);
+                }
+            }
+        }
+
+        while (pending.size() > maxEntries)
+        {
+            dropOldest();
+        }
+
+        try
+        {
+            compact();
+        }
+        catch (IOException e)
+        {
+            // Every pending round was replayed from it, keep appending to the old journal
+            log.warn("Unable to compact the outbox", e);
+        }
+        opened = true;
+        log.debug("Outbox opened with {} pending round(s)", pending.size());
+    }
+
+    private void replay(String line)
+    {
+        if (line.length() < 3 || line.charAt(1) != SEPARATOR)
+        {
+            return;
+        }
+
+        try
+        {
+            if (line.charAt(0) == APPEND)
+            {
+                int idEnd = line.indexOf(SEPARATOR, 2);
+                int nameEnd = idEnd < 0 ? -1 : line.indexOf(SEPARATOR, idEnd + 1);
+                // A torn write from a crash leaves an incomplete payload behind, ignore it
+                if (nameEnd < 0 || line.charAt(line.length() - 1) != '}')
+                {
+                    return;
+                }
+
+                long id = Long.parseLong(line.substring(2, idEnd));
+                String submittedBy = line.substring(idEnd + 1, nameEnd);
+                byte[] payload = line.substring(nameEnd + 1).getBytes(StandardCharsets.UTF_8);
+                pending.put(id, new Entry(id, submittedBy, payload));
+                nextId = Math.max(nextId, id + 1);
+            }
+            else if (line.charAt(0) == ACK)
+            {
+                pending.remove(Long.parseLong(line.substring(2)));
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            log.debug("Skipping malformed outbox record: {}", line);
+        }
+    }
+
+    /**
+     * Journals a finished round. If the outbox is full the oldest pending round is dropped.
+     */
+    public synchronized Entry append(String submittedBy, byte[] payload) throws IOException
+    {
+        if (!opened)
+        {
+            throw new IOException("Outbox is not open");
+        }
+
+        while (pending.size() >= maxEntries)
+        {
+            dropOldest();
+        }
+
+        FileOutputStream out = stream();
+        Entry entry = new Entry(nextId++, submittedBy, payload);
+        try
+        {
+            writeAppend(out, entry);
+            out.flush();
+            out.getFD().sync();
+        }
+        catch (IOException e)
+        {
+            // Reopened on a new line
+            closeStream();
+            throw e;
+        }
+
+        pending.put(entry.getId(), entry);
+        return entry;
+    }
+
+    /**
+     * Marks a round as done (submitted or permanently rejected) so it is never sent again.
+     */
+    public synchronized void acknowledge(long id) throws IOException
+    {
+        if (!pending.containsKey(id))
+        {
+            return;
+        }
+
+        // Only forgotten once the ACK is on disk, otherwise it is retried this session
+        FileOutputStream out = stream();
+        try
+        {
+            out.write((ACK + "" + SEPARATOR + id + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+        catch (IOException e)
+        {
+            closeStream();
+            throw e;
+        }
+        pending.remove(id);
+
+        if (++acknowledged >= COMPACT_THRESHOLD)
+        {
+            try
+            {
+                compact();
+            }
+            catch (IOException e)
+            {
+                // The journal is still complete, compaction is tried again on the next ACK
+                log.warn("Unable to compact the outbox", e);
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code max} pending rounds, oldest first.
+     */
+    public synchronized List<Entry> peek(int max)
+    {
+        List<Entry> entries = new ArrayList<>(Math.min(max, pending.size()));
+        Iterator<Entry> it = pending.values().iterator();
+        while (it.hasNext() && entries.size() < max)
+        {
+            entries.add(it.next());
+        }
+        return entries;
+    }
+
+    public synchronized int size()
+    {
+        return pending.size();
+    }
+
+    public synchronized void close()
+    {
+        opened = false;
+        closeStream();
+    }
+
+    private FileOutputStream stream() throws IOException
+    {
+        if (!opened)
+        {
+            throw new IOException("Outbox is not open");
+        }
+        if (out == null)
+        {
+            out = openStream();
+        }
+        return out;
+    }
+
+    private FileOutputStream openStream() throws IOException
+    {
+        boolean torn = false;
+        try (RandomAccessFile journal = new RandomAccessFile(file, "rw"))
+        {
+            if (journal.length() > 0)
+            {
+                journal.seek(journal.length() - 1);
+                torn = journal.read() != '\n';
+            }
+        }
+
+        FileOutputStream stream = new FileOutputStream(file, true);
+        if (torn)
+        {
+            // Never append to a record torn by a crash
+            stream.write('\n');
+        }
+        return stream;
+    }
+
+    private void closeStream()
+    {
+        if (out == null)
+        {
+            return;
+        }
+
+        try
+        {
+            out.close();
+        }
+        catch (IOException e)
+        {
+            log.debug("Failed to close outbox", e);
+        }
+        out = null;
+    }
+
+    private void dropOldest() throws IOException
+    {
+        Entry oldest = pending.values().iterator().next();
+        log.warn("Outbox is full ({} rounds), dropping oldest unsubmitted round {}", maxEntries, oldest.getId());
+        if (opened)
+        {
+            acknowledge(oldest.getId());
+        }
+        else
+        {
+            pending.remove(oldest.getId());
+        }
+    }
+
+    /**
+     * Rewrites the journal so it only contains the pending rounds, then atomically swaps it in.
+     * If that fails the old journal, which still holds every pending round, is kept appending.
+     */
+    private void compact() throws IOException
+    {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs())
+        {
+            throw new IOException("Unable to create " + parent);
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream tmpOut = new FileOutputStream(tmp))
+        {
+            for (Entry entry : pending.values())
+            {
+                writeAppend(tmpOut, entry);
+            }
+            tmpOut.flush();
+            tmpOut.getFD().sync();
+        }
+
+        // An open file can't be replaced on Windows
+        closeStream();
+        try
+        {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            acknowledged = 0;
+        }
+        finally
+        {
+            out = openStream();
+        }
+    }
+
+    private static void writeAppend(OutputStream stream, Entry entry) throws IOException
+    {
+        stream.write((APPEND + "" + SEPARATOR + entry.getId() + SEPARATOR + entry.getSubmittedBy() + SEPARATOR).getBytes(StandardCharsets.UTF_8));
+        stream.write(entry.getPayload());
+        stream.write('\n');
+    }
+}
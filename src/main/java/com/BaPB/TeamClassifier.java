@@ -0,0 +1,152 @@
+package com.BaPB;
+
+/**
+ * Identifies the run format from the five role icons on the scroll.
+ *
+ * The icons are packed into one key (3 bits per slot) which indexes a table built once from
+ * the compositions below, so classifying a team is a single array lookup. Every table entry
+ * already holds the final role names for each slot, nothing is concatenated per round.
+ *
+ * Adding a composition is a {@link #define} line: a pattern of role letters in scroll order
+ * (A/D/C/H, '*' for any role) and the PB and team role names per slot, where "%s" stands for
+ * the role shown on the scroll and a null team role leaves that player out of the submission.
+ */
+public final class TeamClassifier
+{
+    private static final int SLOT_BITS = 3;
+    private static final int UNKNOWN = 0;
+    // Role code - 1 is the ordinal of the base role
+    private static final Role[] BASE_ROLES = {Role.ATTACKER, Role.DEFENDER, Role.COLLECTOR, Role.HEALER};
+    private static final char[] LETTERS = {'A', 'D', 'C', 'H'};
+
+    private static final Composition[] TABLE = new Composition[1 << (SLOT_BITS * TeamScanner.PLAYERS)];
+
+    static
+    {
+        for (int i = 0; i < BASE_ROLES.length; i++)
+        {
+            if (BASE_ROLES[i].ordinal() != i)
+            {
+                throw new IllegalStateException("Base roles must be declared first, in A/D/C/H order");
+            }
+        }
+
+        // The leecher in slot 3 can hold any role and is not part of the submitted team
+        define("leech", "ACH*D",
+                new String[]{"Leech %s", "Leech %s", "Leech %s", "Leech %s", "Leech %s"},
+                new String[]{"%s", "%s", "%s", null, "%s"});
+        define("five_man", "AAHCD",
+                new String[]{"Main Attacker", "%s", "%s", "%s", "%s"},
+                new String[]{"Main Attacker", "2nd Attacker", "%s", "%s", "%s"});
+        define("duo_heal", "AHHCD",
+                new String[]{"DH %s", "DH 2nd Healer", "DH Main Healer", "DH %s", "DH %s"},
+                new String[]{"%s", "2nd Healer", "Main Healer", "%s", "%s"});
+    }
+
+    /**
+     * A recognised team composition with the role names resolved for every slot.
+     */
+    public static final class Composition
+    {
+        private final String format;
+        private final String[] playerRoles;
+        private final String[] teamRoles;
+
+        private Composition(String format, String[] playerRoles, String[] teamRoles)
+        {
+            this.format = format;
+            this.playerRoles = playerRoles;
+            this.teamRoles = teamRoles;
+        }
+
+        /**
+         * Format name as sent to the API.
+         */
+        public String getFormat()
+        {
+            return format;
+        }
+
+        /**
+         * PB role of the player in a slot, e.g. "Leech Healer" or "DH Main Healer".
+         */
+        public String getPlayerRole(int slot)
+        {
+            return playerRoles[slot];
+        }
+
+        /**
+         * Role submitted for the player in a slot, null if they are not part of the team.
+         */
+        public String getTeamRole(int slot)
+        {
+            return teamRoles[slot];
+        }
+    }
+
+    private TeamClassifier()
+    {
+    }
+
+    /**
+     * Returns the composition of a scanned team, or null if it is not a known format.
+     */
+    public static Composition classify(TeamScanner.Scan scan)
+    {
+        int key = 0;
+        for (int slot = 0; slot < TeamScanner.PLAYERS; slot++)
+        {
+            int code = roleCode(scan.getIcon(slot));
+            if (code == UNKNOWN)
+            {
+                return null;
+            }
+            key = (key << SLOT_BITS) | code;
+        }
+        return TABLE[key];
+    }
+
+    private static int roleCode(int icon)
+    {
+        Role role = Role.fromIcon(icon);
+        return role == null ? UNKNOWN : role.ordinal() + 1;
+    }
+
+    private static void define(String format, String pattern, String[] playerRoles, String[] teamRoles)
+    {
+        expand(format, pattern, playerRoles, teamRoles, 0, 0, new int[TeamScanner.PLAYERS]);
+    }
+
+    // Walks every concrete team the pattern matches, '*' slots taking each of the four roles
+    private static void expand(String format, String pattern, String[] playerRoles, String[] teamRoles, int slot, int key, int[] codes)
+    {
+        if (slot == TeamScanner.PLAYERS)
+        {
+            String[] players = new String[TeamScanner.PLAYERS];
+            String[] team = new String[TeamScanner.PLAYERS];
+            for (int i = 0; i < TeamScanner.PLAYERS; i++)
+            {
+                String role = BASE_ROLES[codes[i] - 1].getKey();
+                players[i] = playerRoles[i].replace("%s", role);
+                team[i] = teamRoles[i] == null ? null : teamRoles[i].replace("%s", role);
+            }
+
+            if (TABLE[key] != null)
+            {
+                throw new IllegalStateException(pattern + " overlaps the " + TABLE[key].format + " composition");
+            }
+            TABLE[key] = new Composition(format, players, team);
+            return;
+        }
+
+        char letter = pattern.charAt(slot);
+        for (int code = 1; code <= BASE_ROLES.length; code++)
+        {
+            if (letter == '*' || letter == LETTERS[code - 1])
+            {
+                codes[slot] = code;
+                expand(format, pattern, playerRoles, teamRoles, slot + 1, (key << SLOT_BITS) | code, codes);
+            }
+        }
+    }
+}
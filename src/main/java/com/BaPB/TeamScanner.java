@@ -0,0 +1,173 @@
+package com.BaPB;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.widgets.Widget;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Reads the team off the BA scroll interface (group 256): the leader and four players, each
+ * with a name (children 8..12) and a role icon (children 18..22).
+ *
+ * The ten child widgets are resolved once per load of the interface and then polled as cached
+ * references. A poll compares the five icon model ids and name texts with the previous poll,
+ * and reports the team once all five slots hold a name and a role.
+ */
+@Slf4j
+public class TeamScanner
+{
+    public static final int GROUP_ID = 256;
+    public static final int PLAYERS = 5; // slot 0 is the leader
+
+    private static final int FIRST_NAME_CHILD = 8;
+    private static final int FIRST_ICON_CHILD = 18;
+    private static final int EMPTY_ICON = -1;
+
+    /**
+     * A completed scan, slots in scroll order.
+     */
+    public static final class Scan
+    {
+        private final String[] names;
+        private final int[] icons;
+        private final int localSlot;
+
+        Scan(String[] names, int[] icons, int localSlot)
+        {
+            this.names = names;
+            this.icons = icons;
+            this.localSlot = localSlot;
+        }
+
+        public String getName(int slot)
+        {
+            return names[slot];
+        }
+
+        public int getIcon(int slot)
+        {
+            return icons[slot];
+        }
+
+        /**
+         * Slot of the local player, -1 if they are not on the scroll.
+         */
+        public int getLocalSlot()
+        {
+            return localSlot;
+        }
+
+        public boolean isLeader()
+        {
+            return localSlot == 0;
+        }
+    }
+
+    private final Widget[] nameWidgets = new Widget[PLAYERS];
+    private final Widget[] iconWidgets = new Widget[PLAYERS];
+    private final int[] lastIcons = new int[PLAYERS];
+    private final String[] lastNames = new String[PLAYERS];
+    private boolean resolved = false;
+
+    /**
+     * Resolves the scroll widgets, call when group 256 is loaded.
+     */
+    public void resolve(Client client)
+    {
+        resolved = false;
+        restart();
+
+        for (int slot = 0; slot < PLAYERS; slot++)
+        {
+            nameWidgets[slot] = client.getWidget(GROUP_ID, FIRST_NAME_CHILD + slot);
+            iconWidgets[slot] = client.getWidget(GROUP_ID, FIRST_ICON_CHILD + slot);
+            if (nameWidgets[slot] == null || iconWidgets[slot] == null)
+            {
+                reset();
+                return;
+            }
+        }
+
+        resolved = true;
+    }
+
+    /**
+     * Forgets the last seen team so the next poll reports it again.
+     */
+    public void restart()
+    {
+        Arrays.fill(lastIcons, EMPTY_ICON);
+        Arrays.fill(lastNames, null);
+    }
+
+    /**
+     * Drops the cached widgets, call when group 256 is closed.
+     */
+    public void reset()
+    {
+        resolved = false;
+        Arrays.fill(nameWidgets, null);
+        Arrays.fill(iconWidgets, null);
+    }
+
+    /**
+     * Returns the team once every slot has a name and a role and either changed since the last
+     * poll, null otherwise.
+     */
+    public Scan poll(Client client, String localPlayer)
+    {
+        if (!resolved)
+        {
+            // Scanning can be started by the scroll being used while the interface is already
+            // open, resolve lazily but only once the interface is actually there
+            if (client.getWidget(GROUP_ID, FIRST_NAME_CHILD) == null)
+            {
+                return null;
+            }
+            resolve(client);
+            if (!resolved)
+            {
+                return null;
+            }
+        }
+
+        boolean changed = false;
+        boolean complete = true;
+        for (int slot = 0; slot < PLAYERS; slot++)
+        {
+            int icon = iconWidgets[slot].getModelId();
+            String name = nameWidgets[slot].getText();
+            changed |= icon != lastIcons[slot] || !Objects.equals(name, lastNames[slot]);
+            complete &= icon != EMPTY_ICON && name != null && !name.isEmpty();
+            lastIcons[slot] = icon;
+            lastNames[slot] = name;
+        }
+
+        if (!changed)
+        {
+            return null;
+        }
+
+        if (log.isDebugEnabled())
+        {
+            log.debug("Scroll changed: {} {}", Arrays.toString(lastNames), Arrays.toString(lastIcons));
+        }
+        if (!complete)
+        {
+            return null;
+        }
+
+        int localSlot = -1;
+        for (int slot = 0; slot < PLAYERS; slot++)
+        {
+            if (localPlayer != null && localPlayer.equals(lastNames[slot]))
+            {
+                localSlot = slot;
+            }
+        }
+
+        return new Scan(lastNames.clone(), lastIcons.clone(), localSlot);
+    }
+}
@@ -0,0 +1,25 @@
+package com.BaPB;
+
+/**
+ * Monotonic game tick counter shared by a set of {@link GameTimer}s.
+ *
+ * Advancing the clock is the only per-tick work, timers derive their elapsed ticks from it
+ * when they are read.
+ */
+public class TickClock
+{
+    private long tick = 0;
+
+    public long now()
+    {
+        return tick;
+    }
+
+    /**
+     * Call once per game tick.
+     */
+    public void tick()
+    {
+        tick++;
+    }
+}
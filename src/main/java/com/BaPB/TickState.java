@@ -0,0 +1,79 @@
+package com.BaPB;
+
+import lombok.Getter;
+import net.runelite.api.coords.WorldPoint;
+
+/**
+ * BA state of the local player for one game tick, computed once and shared by every handler
+ * that runs during that tick.
+ *
+ * Inputs that only matter on a lobby/wave transition (premove, relative spawn point) are
+ * derived on demand and memoized, so ticks without a transition never compute them.
+ */
+public class TickState
+{
+    private static final int PREMOVE_Y_THRESHOLD = 5300;
+    private static final int NO_TICK = -1;
+
+    private final Lobby lobby;
+
+    private int tick = NO_TICK;
+    @Getter
+    private int wave;
+    @Getter
+    private int lobbyId;
+    @Getter
+    private WorldPoint position;
+    @Getter
+    private boolean leader;
+
+    private boolean relativePointResolved;
+    private Lobby.RelativePoint relativePoint;
+
+    public TickState(Lobby lobby)
+    {
+        this.lobby = lobby;
+    }
+
+    public boolean isCurrent(int tick)
+    {
+        return this.tick == tick;
+    }
+
+    public void update(int tick, int wave, WorldPoint position, boolean leader)
+    {
+        this.tick = tick;
+        this.wave = wave;
+        this.position = position;
+        this.leader = leader;
+        this.lobbyId = position != null ? lobby.getLobbyId(position) : 0;
+        this.relativePointResolved = false;
+        this.relativePoint = null;
+    }
+
+    /**
+     * Forces a recompute on the next access, for when a detection input changed mid tick.
+     */
+    public void invalidate()
+    {
+        tick = NO_TICK;
+    }
+
+    public boolean isGoodPremove()
+    {
+        return position != null && position.getY() < PREMOVE_Y_THRESHOLD;
+    }
+
+    /**
+     * Position relative to the lobby the player is standing in, null outside a lobby.
+     */
+    public Lobby.RelativePoint getRelativePoint()
+    {
+        if (!relativePointResolved)
+        {
+            relativePoint = position != null ? lobby.getRelativeCoordinates(position, lobbyId) : null;
+            relativePointResolved = true;
+        }
+        return relativePoint;
+    }
+}
@@ -4,8 +4,12 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * Holds GameTimers for:
@@ -17,6 +21,9 @@ import java.util.Map;
 @Slf4j
 public class Timers
 {
+    // Waves (and the lobbies before them) are always numbered 1..10
+    public static final int MAX_WAVE = 10;
+
     @Setter
     @Getter
     public static class WaveData {
@@ -25,24 +32,20 @@ public class Timers
         private boolean goodPremove;
         private int lobbyCount;
         private Lobby.RelativePoint relativePoint;
-        private Double rangerDeathTime;
-        private Double fighterDeathTime;
-        private Double runnerDeathTime;
-        private Double healerDeathTime;
-        private Double queenSpawnTime;
-
-        public WaveData() {
-            this.waveTimer = new GameTimer();
-            this.qsTimer = new GameTimer();
+        // Seconds, NaN while not (yet) recorded
+        private double rangerDeathTime = Double.NaN;
+        private double fighterDeathTime = Double.NaN;
+        private double runnerDeathTime = Double.NaN;
+        private double healerDeathTime = Double.NaN;
+        private double queenSpawnTime = Double.NaN;
+
+        public WaveData(TickClock clock) {
+            this.waveTimer = new GameTimer(clock);
+            this.qsTimer = new GameTimer(clock);
             this.goodPremove = false;
             this.lobbyCount = 0;
         }
 
-        public void onGameTick() {
-            waveTimer.onGameTick();
-            qsTimer.onGameTick();
-        }
-
         public void stopTimers() {
             waveTimer.stop();
             qsTimer.stop();
@@ -51,54 +54,136 @@ public class Timers
         public void incrementLobbyCount() {
             this.lobbyCount++;
         }
+
+        /**
+         * Returns this slot to its freshly constructed state so it can be reused next round.
+         */
+        void clear() {
+            waveTimer.clear();
+            qsTimer.clear();
+            goodPremove = false;
+            lobbyCount = 0;
+            relativePoint = null;
+            rangerDeathTime = Double.NaN;
+            fighterDeathTime = Double.NaN;
+            runnerDeathTime = Double.NaN;
+            healerDeathTime = Double.NaN;
+            queenSpawnTime = Double.NaN;
+        }
     }
 
-    // Per-wave meta data, wave # -> meta data
-    @Getter
-    private final Map<Integer, WaveData> waveData = new HashMap<>();
+    // Per-wave meta data, indexed by wave #. Slots are allocated once and reused every round,
+    // a slot only counts as present once something has been recorded for that wave.
+    private final WaveData[] waves = new WaveData[MAX_WAVE + 1];
+    private final boolean[] present = new boolean[MAX_WAVE + 1];
+    private int presentCount = 0;
+
+    // Read-only wave # -> meta data view over the present slots, in wave order
+    private final Map<Integer, WaveData> waveData = new WaveDataView();
+
+    // All timers below measure against this one tick counter
+    private final TickClock clock = new TickClock();
 
     // Global round timer
     @Getter
-    private final GameTimer roundTimer = new GameTimer();
+    private final GameTimer roundTimer = new GameTimer(clock);
 
     public int lastWave = 0; // 0 = not in a wave
     public int lastLobby = 0;  // 0 = not in a lobby
 
+    public Timers()
+    {
+        for (int wave = 1; wave <= MAX_WAVE; wave++)
+        {
+            waves[wave] = new WaveData(clock);
+        }
+    }
+
+    /**
+     * Returns the data for a wave, marking it present. Null for numbers outside 1..10.
+     */
+    private WaveData slot(int waveNumber)
+    {
+        if (waveNumber < 1 || waveNumber > MAX_WAVE)
+        {
+            return null;
+        }
+
+        if (!present[waveNumber])
+        {
+            present[waveNumber] = true;
+            presentCount++;
+        }
+        return waves[waveNumber];
+    }
+
+    /**
+     * Returns a read-only wave # -> data view of the waves recorded this round, in wave order.
+     */
+    public Map<Integer, WaveData> getWaveData()
+    {
+        return waveData;
+    }
+
+    /**
+     * Returns the data recorded for a wave, or null if nothing was recorded for it this round.
+     */
+    public WaveData getWaveData(int waveNumber)
+    {
+        if (waveNumber < 1 || waveNumber > MAX_WAVE || !present[waveNumber])
+        {
+            return null;
+        }
+        return waves[waveNumber];
+    }
+
+    /**
+     * Number of waves with recorded data this round.
+     */
+    public int getWaveCount()
+    {
+        return presentCount;
+    }
+
     /* -------------------- Wave Timer Methods -------------------- **/
 
+    /**
+     * Returns the wave timer for a wave between 1 and 10.
+     */
     public GameTimer getWaveTimer(int waveNumber)
     {
-        return waveData
-                .computeIfAbsent(waveNumber, k -> new WaveData())
-                .getWaveTimer();
+        return slot(waveNumber).getWaveTimer();
     }
 
     public void startWave(int waveNumber)
     {
-        if (waveNumber > 0) getWaveTimer(waveNumber).start();
+        WaveData data = slot(waveNumber);
+        if (data != null) data.getWaveTimer().start();
     }
 
     public void stopWave(int waveNumber)
     {
-        WaveData data = waveData.get(waveNumber);
+        WaveData data = getWaveData(waveNumber);
         if (data != null) data.getWaveTimer().stop();
     }
 
     /* -------------------- QS Timer Methods -------------------- **/
 
+    /**
+     * Returns the QS timer for the lobby before a wave between 1 and 10.
+     */
     public GameTimer getQSTimer(int waveNumber) {
-        return waveData
-                .computeIfAbsent(waveNumber, k -> new WaveData())
-                .getQsTimer();
+        return slot(waveNumber).getQsTimer();
     }
 
     public void startQS(int waveNumber) {
-        if (waveNumber > 0) getQSTimer(waveNumber).start();
+        WaveData data = slot(waveNumber);
+        if (data != null) data.getQsTimer().start();
     }
 
     public void stopQS(int waveNumber)
     {
-        WaveData data = waveData.get(waveNumber);
+        WaveData data = getWaveData(waveNumber);
         if (data != null) data.getQsTimer().stop();
     }
 
@@ -118,42 +203,42 @@ public class Timers
 
     public void setRangerDeath(int waveNumber, double time)
     {
-        WaveData data = waveData.get(waveNumber);
+        WaveData data = getWaveData(waveNumber);
         if (data != null) data.setRangerDeathTime(time);
     }
 
     public void setFighterDeath(int waveNumber, double time)
     {
-        WaveData data = waveData.get(waveNumber);
+        WaveData data = getWaveData(waveNumber);
         if (data != null) data.setFighterDeathTime(time);
     }
 
     public void setRunnerDeath(int waveNumber, double time)
     {
-        WaveData data = waveData.get(waveNumber);
+        WaveData data = getWaveData(waveNumber);
         if (data != null) data.setRunnerDeathTime(time);
     }
 
     public void setHealerDeath(int waveNumber, double time)
     {
-        WaveData data = waveData.get(waveNumber);
+        WaveData data = getWaveData(waveNumber);
         if (data != null) data.setHealerDeathTime(time);
     }
 
     public void setQueenSpawnTime(double time)
     {
-        WaveData data = waveData.get(10); // Queen only W10
+        WaveData data = getWaveData(MAX_WAVE); // Queen only W10
         if (data != null) data.setQueenSpawnTime(time);
     }
 
     /* -------------------- Tick Update -------------------- **/
 
     /**
-     * Call once per game tick to update all timers
+     * Call once per game tick to update all timers. Constant time: running timers read their
+     * elapsed ticks off the shared clock instead of being ticked one by one.
      */
     public void onGameTick() {
-        roundTimer.onGameTick();
-        waveData.values().forEach(WaveData::onGameTick);
+        clock.tick();
     }
 
     /* -------------------- Reset Methods -------------------- **/
@@ -163,7 +248,12 @@ public class Timers
      */
     public void resetAll() {
         roundTimer.clear();
-        waveData.clear();
+        for (int wave = 1; wave <= MAX_WAVE; wave++)
+        {
+            if (present[wave]) waves[wave].clear();
+            present[wave] = false;
+        }
+        presentCount = 0;
         lastWave = 0;
         lastLobby = 0;
     }
@@ -177,11 +267,23 @@ public class Timers
         roundTimer.stop();
 
         // Stop all per-wave timers
-        waveData.values().forEach(WaveData::stopTimers);
+        for (int wave = 1; wave <= MAX_WAVE; wave++)
+        {
+            if (present[wave]) waves[wave].stopTimers();
+        }
     }
 
     /* -------------------- Core flow methods -------------------- */
 
+    /**
+     * Whether this wave state differs from the last one between lobby and wave, i.e. whether
+     * {@link #updateState} will use its premove and spawn point arguments.
+     */
+    public boolean isTransition(int currentWave)
+    {
+        return (lastWave == 0) != (currentWave == 0);
+    }
+
     /**
      * Update timers based on the detected wave/lobby state.
      */
@@ -194,9 +296,9 @@ public class Timers
             stopQS(lastLobby);
 
             // Set premove for this wave (which produce the next lobby premove)
-            if (currentWave + 1 <= 10) {
-                WaveData data = waveData.computeIfAbsent(currentWave + 1, k -> new WaveData());
-                data.setGoodPremove(goodPremove);
+            if (currentWave + 1 <= MAX_WAVE) {
+                WaveData data = slot(currentWave + 1);
+                if (data != null) data.setGoodPremove(goodPremove);
             }
         }
 
@@ -208,12 +310,12 @@ public class Timers
 
             if (relPoint != null)
             {
-                WaveData data = waveData.computeIfAbsent(currentLobby, k -> new WaveData());
-                data.setRelativePoint(relPoint);
+                WaveData data = slot(currentLobby);
+                if (data != null) data.setRelativePoint(relPoint);
             }
 
             // Detect resets
-            WaveData data = waveData.get(currentLobby);
+            WaveData data = getWaveData(currentLobby);
             if (data != null) data.incrementLobbyCount();
 
         }
@@ -225,17 +327,20 @@ public class Timers
 
     public void logWaveData()
     {
-        if (waveData.isEmpty())
+        if (presentCount == 0)
         {
             log.debug("No wave data available.");
             return;
         }
 
         log.debug("----- WaveData Dump -----");
-        for (Map.Entry<Integer, WaveData> entry : waveData.entrySet())
+        for (int waveNumber = 1; waveNumber <= MAX_WAVE; waveNumber++)
         {
-            int waveNumber = entry.getKey();
-            WaveData data = entry.getValue();
+            WaveData data = getWaveData(waveNumber);
+            if (data == null)
+            {
+                continue;
+            }
 
             String relPointStr = (data.getRelativePoint() != null)
                     ? "(" + data.getRelativePoint().getX() + "," + data.getRelativePoint().getY() + ")"
@@ -256,4 +361,77 @@ public class Timers
         }
         log.debug("-------------------------");
     }
+
+    /**
+     * Map view over the present wave slots, for callers that iterate wave # -> data.
+     */
+    private class WaveDataView extends AbstractMap<Integer, WaveData>
+    {
+        @Override
+        public int size()
+        {
+            return presentCount;
+        }
+
+        @Override
+        public WaveData get(Object key)
+        {
+            return key instanceof Integer ? getWaveData((Integer) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<Integer, WaveData>> entrySet()
+        {
+            return new AbstractSet<Entry<Integer, WaveData>>()
+            {
+                @Override
+                public int size()
+                {
+                    return presentCount;
+                }
+
+                @Override
+                public Iterator<Entry<Integer, WaveData>> iterator()
+                {
+                    return new Iterator<Entry<Integer, WaveData>>()
+                    {
+                        private int next = advance(1);
+
+                        private int advance(int from)
+                        {
+                            while (from <= MAX_WAVE && !present[from])
+                            {
+                                from++;
+                            }
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext()
+                        {
+                            return next <= MAX_WAVE;
+                        }
+
+                        @Override
+                        public Entry<Integer, WaveData> next()
+                        {
+                            if (!hasNext())
+                            {
+                                throw new NoSuchElementException();
+                            }
+                            int wave = next;
+                            next = advance(wave + 1);
+                            return new SimpleImmutableEntry<>(wave, waves[wave]);
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,323 @@
+package com.BaPB;
+
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.inject.Inject;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues and caches the API token used for round submissions.
+ *
+ * Concurrent callers share a single in-flight token request, and once a token is issued a
+ * refresh is scheduled ahead of its expiry so submissions find a valid token already cached.
+ */
+@Slf4j
+public class TokenManager
+{
+    private static final String TOKEN_ISSUER_URL = "https://api.osrs-ba.com/api/v1/tokens/public/";
+    private static final String SIGNING_SECRET = "ba-4-all";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final DateTimeFormatter EXPIRY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS");
+
+    // Treat tokens as expired 30 seconds early to avoid edge cases
+    private static final long EXPIRY_BUFFER_SECONDS = 30;
+    // Refresh in the background this long before a token expires
+    private static final long REFRESH_AHEAD_SECONDS = 120;
+
+    private static class Token
+    {
+        final String value;
+        final Instant expiry;
+
+        Token(String value, Instant expiry)
+        {
+            this.value = value;
+            this.expiry = expiry;
+        }
+
+        boolean isValid()
+        {
+            return Instant.now().isBefore(expiry.minusSeconds(EXPIRY_BUFFER_SECONDS));
+        }
+    }
+
+    private final OkHttpClient http;
+    private final Gson gson;
+    private final BaPBConfig config;
+    private final ScheduledExecutorService executor;
+
+    // Mac instances are not thread safe, the cached one is guarded by its own monitor
+    private final Mac mac;
+
+    private volatile Token token;
+    private volatile String description;
+    // Whether a token was wanted since the last refresh, idle tokens are left to expire
+    private volatile boolean used;
+
+    // Guarded by this
+    private CompletableFuture<Token> inFlight;
+    private ScheduledFuture<?> scheduledRefresh;
+    // Bumped by shutDown, a fetch or refresh started before it must not cache its token
+    private int generation;
+
+    @Inject
+    public TokenManager(OkHttpClient http, Gson gson, BaPBConfig config, ScheduledExecutorService executor)
+    {
+        this.http = http;
+        this.gson = gson;
+        this.config = config;
+        this.executor = executor;
+
+        try
+        {
+            mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(SIGNING_SECRET.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new IllegalStateException("HmacSHA256 is unavailable", e);
+        }
+    }
+
+    /**
+     * Returns a valid token, only blocking if none is cached. If another thread is already
+     * fetching one this waits for that request instead of issuing a second one.
+     */
+    public String getToken(String currentPlayer) throws Exception
+    {
+        Token current = token;
+        if (current == null || !current.isValid())
+        {
+            log.info("API token invalid or expired. Fetching a new one...");
+            current = fetch(currentPlayer);
+        }
+
+        used = true;
+        return current.value;
+    }
+
+    /**
+     * Starts a background fetch if there is no token that will outlive the refresh window,
+     * so the next submission does not have to wait for one.
+     */
+    public void prefetch(String currentPlayer)
+    {
+        used = true;
+        Token current = token;
+        if (current != null && Instant.now().isBefore(current.expiry.minusSeconds(REFRESH_AHEAD_SECONDS)))
+        {
+            return;
+        }
+
+        executor.execute(() -> refresh(currentPlayer));
+    }
+
+    /**
+     * Drops the cached token, e.g. after the API refused it.
+     */
+    public void invalidate()
+    {
+        token = null;
+    }
+
+    public synchronized void shutDown()
+    {
+        generation++;
+        if (scheduledRefresh != null)
+        {
+            scheduledRefresh.cancel(false);
+            scheduledRefresh = null;
+        }
+        token = null;
+    }
+
+    private void refresh(String currentPlayer)
+    {
+        if (!config.SubmitRuns())
+        {
+            return;
+        }
+
+        try
+        {
+            fetch(currentPlayer);
+        }
+        catch (Exception e)
+        {
+            log.debug("Background API token refresh failed", e);
+        }
+    }
+
+    /**
+     * Single-flight token request: the first caller performs the request on its own thread and
+     * every caller arriving meanwhile waits on the same result. The request is never handed to
+     * the executor, so a caller running on the executor cannot deadlock waiting on itself.
+     */
+    private Token fetch(String currentPlayer) throws Exception
+    {
+        CompletableFuture<Token> request;
+        boolean owner = false;
+        int started;
+        synchronized (this)
+        {
+            started = generation;
+            if (inFlight == null)
+            {
+                inFlight = new CompletableFuture<>();
+                owner = true;
+            }
+            request = inFlight;
+        }
+
+        if (!owner)
+        {
+            try
+            {
+                return request.get();
+            }
+            catch (ExecutionException e)
+            {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+
+        try
+        {
+            Token issued = requestToken(currentPlayer);
+            synchronized (this)
+            {
+                // Still handed to the callers waiting on it, but not kept past a shutdown
+                if (generation == started)
+                {
+                    token = issued;
+                    description = currentPlayer;
+                    scheduleRefresh(issued);
+                }
+            }
+            request.complete(issued);
+            return issued;
+        }
+        catch (Exception e)
+        {
+            request.completeExceptionally(e);
+            throw e;
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                inFlight = null;
+            }
+        }
+    }
+
+    private synchronized void scheduleRefresh(Token issued)
+    {
+        if (scheduledRefresh != null)
+        {
+            scheduledRefresh.cancel(false);
+        }
+
+        long delay = Math.max(0, issued.expiry.getEpochSecond() - REFRESH_AHEAD_SECONDS - Instant.now().getEpochSecond());
+        final int scheduled = generation;
+        scheduledRefresh = executor.schedule(() ->
+        {
+            if (used && isGeneration(scheduled))
+            {
+                used = false;
+                refresh(description);
+            }
+        }, delay, TimeUnit.SECONDS);
+    }
+
+    private synchronized boolean isGeneration(int expected)
+    {
+        return generation == expected;
+    }
+
+    private Token requestToken(String currentPlayer) throws Exception
+    {
+        String timestamp = String.valueOf(Instant.now().toEpochMilli());
+        String nonce = UUID.randomUUID().toString();
+        String signature = generateHmacSha256(timestamp + nonce);
+
+        // Create JSON body
+        Map<String, String> bodyMap = new HashMap<>();
+        bodyMap.put("description", currentPlayer);
+        String jsonBody = gson.toJson(bodyMap);
+
+        RequestBody body = RequestBody.create(JSON, jsonBody);
+
+        Request req = new Request.Builder()
+                .url(TOKEN_ISSUER_URL)
+                .header("X-Timestamp", timestamp)
+                .header("X-Nonce", nonce)
+                .header("X-Signature", signature)
+                .post(body)
+                .build();
+
+        try (Response resp = http.newCall(req).execute())
+        {
+            if (!resp.isSuccessful() || resp.body() == null)
+                throw new RuntimeException("Failed to fetch API token: " + resp.code() + " " + resp.message());
+
+
+            String rawResponse = resp.body().string();  // read raw response
+
+            log.debug("Raw API response: {}", rawResponse);
+
+            TokenWrapper wrapper = gson.fromJson(rawResponse, TokenWrapper.class);
+            if (wrapper == null || wrapper.data == null || wrapper.data.token == null || wrapper.data.token.isEmpty())
+                throw new RuntimeException("Token issuer returned no 'token' key");
+
+            LocalDateTime ldt = LocalDateTime.parse(wrapper.data.expiresAt, EXPIRY_FORMAT);
+            return new Token(wrapper.data.token, ldt.toInstant(ZoneOffset.UTC));
+        }
+    }
+
+    private String generateHmacSha256(String data)
+    {
+        byte[] rawHmac;
+        synchronized (mac)
+        {
+            rawHmac = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        }
+        return Base64.getEncoder().encodeToString(rawHmac);
+    }
+
+    private static class TokenWrapper {
+        String status;
+        TokenResponse data;
+        Object error;
+    }
+
+    private static class TokenResponse
+    {
+        @SerializedName("token")
+        String token;
+
+        @SerializedName("expires_at")
+        String expiresAt;
+    }
+}
@@ -0,0 +1,92 @@
+package com.BaPB;
+
+import com.google.gson.stream.JsonWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Local per-wave split log, one JSON object per line and one file per day, e.g.
+ * splits-2024-05-01.jsonl.
+ *
+ * A line is written as soon as a wave ends:
+ * {"time":"...","format":"leech","role":"Leech Healer","wave":3,"wave_time":41.4,"qs_ticks":12,
+ *  "good_premove":true,"resets":0,"x_qs_spawn":3,"y_qs_spawn":5,"ranger_death_time":20.4,...}
+ * Times that were not recorded are left out, same as for submissions.
+ */
+@Slf4j
+public class WaveSplitLog
+{
+    private final AsyncLineWriter writer;
+
+    public WaveSplitLog(File directory)
+    {
+        this.writer = new AsyncLineWriter("BaPB split log",
+                () -> new File(directory, "splits-" + LocalDate.now() + ".jsonl"));
+    }
+
+    /**
+     * Queues the split of a wave that just ended. Must be called on the client thread.
+     */
+    public void write(int wave, Timers.WaveData data, String format, String role, boolean isLeader)
+    {
+        StringWriter line = new StringWriter(256);
+        try (JsonWriter out = new JsonWriter(line))
+        {
+            out.beginObject();
+            out.name("time").value(Instant.now().toString());
+            if (format != null)
+            {
+                out.name("format").value(format);
+            }
+            if (role != null)
+            {
+                out.name("role").value(role);
+            }
+            out.name("wave").value(wave);
+            out.name("wave_time").value(data.getWaveTimer().getElapsedSeconds(isLeader, false));
+            out.name("qs_ticks").value(data.getQsTimer().getRoundTicks());
+            out.name("good_premove").value(data.isGoodPremove());
+            out.name("resets").value(Math.max(0, data.getLobbyCount() - 1));
+
+            Lobby.RelativePoint spawn = data.getRelativePoint();
+            if (spawn != null)
+            {
+                out.name("x_qs_spawn").value(spawn.getX());
+                out.name("y_qs_spawn").value(spawn.getY());
+            }
+
+            writeTime(out, "ranger_death_time", data.getRangerDeathTime());
+            writeTime(out, "fighter_death_time", data.getFighterDeathTime());
+            writeTime(out, "runner_death_time", data.getRunnerDeathTime());
+            writeTime(out, "healer_death_time", data.getHealerDeathTime());
+            writeTime(out, "queen_spawn_time", data.getQueenSpawnTime());
+            out.endObject();
+        }
+        catch (IOException e)
+        {
+            // StringWriter does not throw
+            log.debug("Unable to encode wave {} split", wave, e);
+            return;
+        }
+
+        writer.offer(line.toString());
+    }
+
+    public void close()
+    {
+        writer.close();
+    }
+
+    private static void writeTime(JsonWriter out, String name, double seconds) throws IOException
+    {
+        if (!Double.isNaN(seconds))
+        {
+            out.name(name).value(seconds);
+        }
+    }
+}
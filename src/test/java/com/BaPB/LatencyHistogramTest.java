@@ -0,0 +1,81 @@
+package com.BaPB;
+
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class LatencyHistogramTest
+{
+	@Test
+	public void testBuckets()
+	{
+		int last = -1;
+		for (long nanos : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 999_999, 600_000_000L, Long.MAX_VALUE})
+		{
+			int bucket = LatencyHistogram.bucket(nanos);
+			assertTrue(nanos + " in bucket " + bucket, bucket >= last);
+			assertTrue(nanos + " below its bucket", LatencyHistogram.lowerBound(bucket) <= nanos);
+			assertTrue(nanos + " above its bucket", bucket == LatencyHistogram.bucket(Long.MAX_VALUE)
+				|| LatencyHistogram.lowerBound(bucket + 1) > nanos);
+			last = bucket;
+		}
+		assertEquals(16, LatencyHistogram.bucket(16));
+		assertEquals(16, LatencyHistogram.bucket(17));
+		assertEquals(17, LatencyHistogram.bucket(18));
+	}
+
+	@Test
+	public void testPercentiles()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		Random random = new Random(25);
+		for (int i = 0; i < 9900; i++)
+		{
+			histogram.record(1000 + random.nextInt(9000));
+		}
+		for (int i = 0; i < 100; i++)
+		{
+			histogram.record(5_000_000 + i);
+		}
+
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals(10_000, snapshot.getCount());
+		assertEquals(5_000_099, snapshot.getMax());
+		assertWithin(5_500, snapshot.getPercentile(50));
+		assertWithin(9_910, snapshot.getPercentile(99));
+		assertEquals(5_000_099, snapshot.getPercentile(100));
+
+		histogram.reset();
+		snapshot = histogram.snapshot();
+		assertEquals(0, snapshot.getCount());
+		assertEquals(0, snapshot.getMax());
+		assertEquals(0, snapshot.getPercentile(99));
+	}
+
+	@Test
+	public void testDisabledHandlersAreNotCounted()
+	{
+		HandlerLatencies latencies = new HandlerLatencies();
+		latencies.stop(HandlerLatencies.Handler.GAME_TICK, latencies.start());
+		assertEquals(0, latencies.snapshot(HandlerLatencies.Handler.GAME_TICK).getCount());
+		assertTrue(latencies.report().isEmpty());
+
+		latencies.setEnabled(true);
+		latencies.stop(HandlerLatencies.Handler.GAME_TICK, latencies.start());
+		assertTrue(latencies.timedInput(HandlerLatencies.Handler.BA_SUBMIT, (String a, String b) -> true).test("!ba", "ba"));
+		assertEquals(1, latencies.snapshot(HandlerLatencies.Handler.GAME_TICK).getCount());
+		assertEquals(1, latencies.snapshot(HandlerLatencies.Handler.BA_SUBMIT).getCount());
+
+		List<String> report = latencies.report();
+		assertEquals(2, report.size());
+		assertTrue(report.get(0), report.get(0).startsWith("onGameTick: 1 calls, p50 "));
+	}
+
+	// Percentiles are bucket upper bounds up to 12.5% above the exact value, plus sampling noise
+	private static void assertWithin(long expected, long actual)
+	{
+		assertTrue(expected + " ~ " + actual, actual >= expected * 0.9 && actual <= expected * 1.25);
+	}
+}
@@ -0,0 +1,139 @@
+package com.BaPB;
+
+import java.util.Random;
+import net.runelite.client.util.Text;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class PenanceDeathParserTest
+{
+	private final PenanceDeathParser parser = new PenanceDeathParser();
+
+	@Test
+	public void testMessages()
+	{
+		assertParsed("All of the Penance Healers have been killed!<col=ef1020> 34.2s", PenanceDeathParser.Penance.HEALERS, 34.2);
+		assertParsed("<col=ef1020>All of the Penance Rangers have been killed! 12s</col>", PenanceDeathParser.Penance.RANGERS, 12);
+		assertParsed("All of the Penance Fighters have been killed! <col=ff0000>1:02.4</col>", PenanceDeathParser.Penance.FIGHTERS, Double.NaN);
+		assertParsed("All of the Penance Runners have been killed! 105.6s  ", PenanceDeathParser.Penance.RUNNERS, 105.6);
+		assertParsed("All of the Penance Runners have been killed! 0.6", PenanceDeathParser.Penance.RUNNERS, 0.6);
+		assertParsed("All of the Penance Runners have been killed!", PenanceDeathParser.Penance.RUNNERS, Double.NaN);
+		assertParsed("All of the Penance Healers have been killed! 7.8ss", PenanceDeathParser.Penance.HEALERS, Double.NaN);
+		assertParsed("All of the Penance Queens have been killed! 7.8s", null, 7.8);
+		assertParsed("All of the Penance  Healers have been killed! 7.8s", null, 7.8);
+		assertParsed("All of the Penance Heal<col=ff0000>ers</col> have been killed! 7.8s", PenanceDeathParser.Penance.HEALERS, 7.8);
+	}
+
+	@Test
+	public void testTooShort()
+	{
+		assertFalse(parser.parse(""));
+		assertFalse(parser.parse("All of the Penance"));
+		assertFalse(parser.parse("All of the Penance    "));
+		assertFalse(parser.parse("<col=ff0000>All of the</col> <br>"));
+		assertNull(parser.getNpc());
+	}
+
+	@Test
+	public void testMatchesSplitParse()
+	{
+		final String[] words = {"All", "of", "the", "Penance", "Rangers", "Fighters", "Runners", "Healers", "Healer", "Runnerss", "killed!", ""};
+		final String number = "0123456789.s-+";
+		final Random random = new Random(83);
+
+		for (int n = 0; n < 100_000; n++)
+		{
+			final StringBuilder message = new StringBuilder();
+			final int wordCount = random.nextInt(9);
+			for (int w = 0; w < wordCount; w++)
+			{
+				appendTag(message, random);
+				message.append(words[random.nextInt(words.length)]);
+				message.append(random.nextInt(6) == 0 ? "  " : " ");
+			}
+
+			final int numberLength = random.nextInt(9);
+			for (int c = 0; c < numberLength; c++)
+			{
+				appendTag(message, random);
+				message.append(number.charAt(random.nextInt(number.length())));
+			}
+			appendTag(message, random);
+			if (random.nextInt(8) == 0)
+			{
+				message.append(' ');
+			}
+
+			assertMatchesSplitParse(message.toString());
+		}
+	}
+
+	private void assertParsed(String message, PenanceDeathParser.Penance npc, double seconds)
+	{
+		assertTrue(message, parser.parse(message));
+		assertEquals(message, npc, parser.getNpc());
+		assertEquals(message, seconds, parser.getSeconds(), 0);
+		assertMatchesSplitParse(message);
+	}
+
+	/**
+	 * Checks the parser against the split based parsing it replaced.
+	 */
+	private void assertMatchesSplitParse(String message)
+	{
+		final String[] parts = Text.removeTags(message).split(" ");
+		final boolean parsed = parser.parse(message);
+		assertEquals(message, parts.length >= 5, parsed);
+		if (!parsed)
+		{
+			return;
+		}
+
+		PenanceDeathParser.Penance npc = null;
+		for (PenanceDeathParser.Penance penance : PenanceDeathParser.Penance.values())
+		{
+			if (penance.getWord().equals(parts[4]))
+			{
+				npc = penance;
+			}
+		}
+
+		String time = parts[parts.length - 1];
+		if (time.endsWith("s"))
+		{
+			time = time.substring(0, time.length() - 1);
+		}
+
+		double seconds;
+		try
+		{
+			seconds = Double.parseDouble(time);
+		}
+		catch (NumberFormatException e)
+		{
+			seconds = Double.NaN;
+		}
+
+		assertEquals(message, npc, parser.getNpc());
+		assertEquals(message, Double.doubleToLongBits(seconds), Double.doubleToLongBits(parser.getSeconds()));
+	}
+
+	private static void appendTag(StringBuilder message, Random random)
+	{
+		switch (random.nextInt(12))
+		{
+			case 0:
+				message.append("<col=ef1020>");
+				break;
+			case 1:
+				message.append("</col>");
+				break;
+			case 2:
+				message.append("<br>");
+				break;
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package com.BaPB;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class RecentRunTest
+{
+	@Test
+	public void testExactEncoding()
+	{
+		for (Role role : Role.values())
+		{
+			for (int ticks : new int[]{1, 206, 999, 100_000})
+			{
+				RecentRun run = RecentRun.decode(RecentRun.encode(ticks, role));
+				assertEquals(role.getKey(), ticks * 6L, run.getTenths());
+				assertEquals(role, run.getRole());
+			}
+		}
+		assertNull(RecentRun.decode(RecentRun.encode(206, null)).getRole());
+	}
+
+	@Test
+	public void testLegacyEncoding()
+	{
+		for (Role role : Role.values())
+		{
+			// 3:43.8, what older versions stored as 223.8 plus the role code
+			double legacy = RecentRun.encodeLegacy(373 * 0.6, role);
+			assertTrue(role.getKey(), legacy < 1_000_000);
+			assertEquals(role.getKey(), 223.8 + role.getLegacyCode() / 1000.0, legacy, 1e-9);
+
+			RecentRun run = RecentRun.decode(legacy);
+			assertEquals(role.getKey(), 2238, run.getTenths());
+			assertEquals(role, run.getRole());
+		}
+
+		RecentRun unknown = RecentRun.decode(RecentRun.encodeLegacy(223.8, null));
+		assertEquals(2238, unknown.getTenths());
+		assertNull(unknown.getRole());
+	}
+}
@@ -0,0 +1,274 @@
+package com.BaPB;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.coords.WorldPoint;
+import net.runelite.api.gameval.ItemID;
+
+/**
+ * Drives a {@link RoundTracker} from recorded ticks instead of a live client, as fast as the
+ * tracker can take them.
+ *
+ * Every tick holds the full input state at that tick. The harness forwards only what changed,
+ * in the order the client posts its events: varbit, inventory and role widgets, then chat,
+ * then interfaces, then the game tick itself.
+ *
+ * Ticks can also be read from a {@link RoundRecording}, and the ticks replayed can be written
+ * to one.
+ */
+class ReplayHarness implements RoundTracker.Source
+{
+	static final String LOCAL_PLAYER = "Local Player";
+
+	private static final int[] NONE = new int[0];
+	private static final int[] HORN = {ItemID.BARBASSAULT_ATT_HORN_01};
+
+	/**
+	 * Input state of one game tick.
+	 */
+	static final class Tick
+	{
+		WorldPoint position;
+		boolean instanced;
+		int inGameBit;
+		// Item ids in the inventory
+		int[] inventory = NONE;
+		// Group ids of the open role widgets
+		int[] roleWidgets = NONE;
+		final List<Chat> chat = new ArrayList<>(0);
+		// Team read off the scroll on this tick
+		TeamScanner.Scan scroll;
+		// Reward text, if the wave complete interface loaded on this tick
+		String waveComplete;
+	}
+
+	static final class Chat
+	{
+		final ChatMessageType type;
+		final String message;
+		// Message node value, after other plugins appended to it
+		final String value;
+
+		Chat(ChatMessageType type, String message)
+		{
+			this(type, message, message);
+		}
+
+		Chat(ChatMessageType type, String message, String value)
+		{
+			this.type = type;
+			this.message = message;
+			this.value = value;
+		}
+	}
+
+	private final RoundTracker tracker = new RoundTracker(this);
+	private final List<RoundSnapshot> rounds = new ArrayList<>();
+
+	private RoundRecording.Writer recording;
+	private int detectionMismatches;
+
+	private int tickCount;
+	private Tick current;
+	private int inGameBit;
+	private boolean roleHorn;
+	private int roleWidgets;
+
+	RoundTracker getTracker()
+	{
+		return tracker;
+	}
+
+	/**
+	 * Rounds completed so far, in the order they ended.
+	 */
+	List<RoundSnapshot> getRounds()
+	{
+		return rounds;
+	}
+
+	/**
+	 * Names used for the players on the scroll, since recordings do not keep them.
+	 */
+	static String[] scrollNames(int localSlot)
+	{
+		String[] names = new String[TeamScanner.PLAYERS];
+		for (int slot = 0; slot < TeamScanner.PLAYERS; slot++)
+		{
+			names[slot] = slot == localSlot ? LOCAL_PLAYER : "Player " + (slot + 1);
+		}
+		return names;
+	}
+
+	/**
+	 * Writes every tick replayed from now on to a recording.
+	 */
+	void record(RoundRecording.Writer recording)
+	{
+		this.recording = recording;
+	}
+
+	/**
+	 * Ticks of replayed recordings where the tracker detected a different wave or lobby than
+	 * when the recording was made.
+	 */
+	int getDetectionMismatches()
+	{
+		return detectionMismatches;
+	}
+
+	void replay(RoundRecording.Reader recorded) throws IOException
+	{
+		while (recorded.next())
+		{
+			Tick tick = new Tick();
+			tick.position = recorded.getPosition();
+			tick.instanced = recorded.isInstanced();
+			tick.inGameBit = recorded.isInGame() ? 1 : 0;
+			tick.inventory = recorded.hasRoleHorn() ? HORN : NONE;
+
+			int widgets = recorded.getRoleWidgets();
+			tick.roleWidgets = new int[Integer.bitCount(widgets)];
+			for (int i = 0, bit = 0; bit < 4; bit++)
+			{
+				if ((widgets & 1 << bit) != 0)
+				{
+					tick.roleWidgets[i++] = RoundTracker.BA_ATTACKER_GROUP_ID + bit;
+				}
+			}
+
+			for (int i = 0; i < recorded.getChatCount(); i++)
+			{
+				tick.chat.add(new Chat(recorded.getChatType(i), recorded.getChatMessage(i)));
+			}
+			if (recorded.getScrollIcons() != null)
+			{
+				int localSlot = recorded.getScrollLocalSlot();
+				tick.scroll = new TeamScanner.Scan(scrollNames(localSlot), recorded.getScrollIcons(), localSlot);
+			}
+			tick.waveComplete = recorded.getWaveComplete();
+
+			step(tick);
+
+			TickState state = tracker.currentState();
+			if (state.getWave() != recorded.getWave() || state.getLobbyId() != recorded.getLobby())
+			{
+				detectionMismatches++;
+			}
+		}
+	}
+
+	void replay(Iterable<Tick> ticks)
+	{
+		for (Tick tick : ticks)
+		{
+			step(tick);
+		}
+	}
+
+	void step(Tick tick)
+	{
+		tickCount++;
+		current = tick;
+
+		if (tick.inGameBit != inGameBit)
+		{
+			inGameBit = tick.inGameBit;
+			tracker.setInGameBit(inGameBit);
+		}
+
+		boolean horn = false;
+		for (int itemId : tick.inventory)
+		{
+			horn |= RoundTracker.isRoleHorn(itemId);
+		}
+		if (horn != roleHorn)
+		{
+			roleHorn = horn;
+			tracker.setHasRoleHorn(horn);
+		}
+
+		int widgets = 0;
+		for (int groupId : tick.roleWidgets)
+		{
+			widgets |= 1 << (groupId - RoundTracker.BA_ATTACKER_GROUP_ID);
+		}
+		for (int groupId = RoundTracker.BA_ATTACKER_GROUP_ID; groupId <= RoundTracker.BA_HEALER_GROUP_ID; groupId++)
+		{
+			int bit = 1 << (groupId - RoundTracker.BA_ATTACKER_GROUP_ID);
+			if ((widgets & bit) != (roleWidgets & bit))
+			{
+				tracker.setRoleWidgetOpen(groupId, (widgets & bit) != 0);
+			}
+		}
+		roleWidgets = widgets;
+
+		for (int i = 0; i < tick.chat.size(); i++)
+		{
+			Chat chat = tick.chat.get(i);
+			tracker.onChatMessage(chat.type, chat.message, chat.value);
+			String text = recording != null ? RoundTracker.parsedText(chat.type, chat.message, chat.value) : null;
+			if (text != null)
+			{
+				recording.chat(chat.type, text);
+			}
+		}
+
+		if (tick.scroll != null)
+		{
+			tracker.onScrollLoaded();
+			tracker.onTeamScanned(tick.scroll);
+			if (recording != null)
+			{
+				int[] icons = new int[TeamScanner.PLAYERS];
+				for (int slot = 0; slot < TeamScanner.PLAYERS; slot++)
+				{
+					icons[slot] = tick.scroll.getIcon(slot);
+				}
+				recording.scroll(icons, tick.scroll.getLocalSlot());
+			}
+		}
+
+		if (tick.waveComplete != null)
+		{
+			if (recording != null)
+			{
+				recording.waveComplete(tick.waveComplete);
+			}
+			if (!Double.isNaN(tracker.onWaveComplete(tick.waveComplete)))
+			{
+				rounds.add(tracker.finishRound(LOCAL_PLAYER, null));
+			}
+		}
+
+		tracker.onGameTick(true);
+
+		if (recording != null)
+		{
+			RoundRecorder.writeTick(recording, tracker);
+		}
+	}
+
+	/**
+	 * Ticks replayed so far.
+	 */
+	@Override
+	public int getTickCount()
+	{
+		return tickCount;
+	}
+
+	@Override
+	public WorldPoint getLocalPosition()
+	{
+		return current != null ? current.position : null;
+	}
+
+	@Override
+	public boolean isInstanced()
+	{
+		return current != null && current.instanced;
+	}
+}
@@ -0,0 +1,139 @@
+package com.BaPB;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ReplayHarnessTest
+{
+	@Test
+	public void testLeaderRound() throws IOException
+	{
+		ScriptedRound round = ScriptedRound.script(new Random(1), true, 0);
+		ReplayHarness harness = new ReplayHarness();
+		harness.replay(round.ticks);
+
+		assertEquals(1, harness.getRounds().size());
+		round.assertMatches(harness.getRounds().get(0));
+		assertEquals(round.role, harness.getTracker().getRoundRole());
+		assertEquals("Leech Attacker", round.role);
+
+		String payload = payload(harness.getRounds().get(0));
+		assertTrue(payload, payload.startsWith("{\"format\":\"leech\",\"round_time\":" + round.roundSeconds()
+			+ ",\"scroller\":true,\"submitted_by\":\"Local Player\",\"players\":["));
+		assertTrue(payload, payload.contains("\"queen_spawn_time\":" + round.queenSpawn + "}]}"));
+	}
+
+	@Test
+	public void testPlayerRoundWithReset() throws IOException
+	{
+		ScriptedRound round = ScriptedRound.script(new Random(2), false, 6);
+		ReplayHarness harness = new ReplayHarness();
+		harness.replay(round.ticks);
+
+		assertEquals(1, harness.getRounds().size());
+		round.assertMatches(harness.getRounds().get(0));
+		assertEquals(round.role, harness.getTracker().getRoundRole());
+		assertEquals("Leech Healer", round.role);
+
+		String payload = payload(harness.getRounds().get(0));
+		assertTrue(payload, payload.contains("\"scroller\":false"));
+		assertTrue(payload, payload.contains("{\"wave_number\":6,\"wave_time\":" + round.waveTicks[6] * 600 / 1000.0));
+		assertTrue(payload, !payload.contains("x_qs_spawn"));
+	}
+
+	@Test
+	public void testDuoHealRounds() throws IOException
+	{
+		ScriptedRound leader = ScriptedRound.script(new Random(4), "duo_heal", true, 0);
+		ScriptedRound player = ScriptedRound.script(new Random(5), "duo_heal", false, 3);
+		ReplayHarness harness = new ReplayHarness();
+		harness.replay(leader.ticks);
+		assertEquals("DH Attacker", harness.getTracker().getRoundRole());
+		harness.replay(player.ticks);
+		assertEquals("DH Main Healer", harness.getTracker().getRoundRole());
+
+		assertEquals(2, harness.getRounds().size());
+		leader.assertMatches(harness.getRounds().get(0));
+		player.assertMatches(harness.getRounds().get(1));
+
+		String payload = payload(harness.getRounds().get(1));
+		assertTrue(payload, payload.startsWith("{\"format\":\"duo_heal\","));
+		assertTrue(payload, payload.contains("\"role\":\"2nd Healer\""));
+	}
+
+	@Test
+	public void testDeathTimesAreReadFromMessageNode()
+	{
+		ScriptedRound round = ScriptedRound.script(new Random(3), true, 0);
+		// Drop the time the ba minigame plugin appends to the message node
+		for (ReplayHarness.Tick tick : round.ticks)
+		{
+			for (int i = 0; i < tick.chat.size(); i++)
+			{
+				ReplayHarness.Chat chat = tick.chat.get(i);
+				tick.chat.set(i, new ReplayHarness.Chat(chat.type, chat.message));
+			}
+		}
+
+		ReplayHarness harness = new ReplayHarness();
+		harness.replay(round.ticks);
+
+		assertEquals(1, harness.getRounds().size());
+		RoundSnapshot snapshot = harness.getRounds().get(0);
+		for (int i = 0; i < snapshot.getWaveCount(); i++)
+		{
+			assertEquals(Double.NaN, snapshot.getRangerDeathTime(i), 0);
+			assertEquals(Double.NaN, snapshot.getHealerDeathTime(i), 0);
+		}
+	}
+
+	@Test
+	public void testManyRoundsBackToBack()
+	{
+		final int distinctRounds = 200;
+		final int passes = 10;
+
+		Random random = new Random(23);
+		List<ScriptedRound> rounds = new ArrayList<>(distinctRounds);
+		for (int i = 0; i < distinctRounds; i++)
+		{
+			boolean reset = random.nextInt(4) == 0;
+			String format = random.nextInt(4) == 0 ? "duo_heal" : "leech";
+			rounds.add(ScriptedRound.script(random, format, random.nextBoolean(), reset ? 2 + random.nextInt(Timers.MAX_WAVE - 1) : 0));
+		}
+
+		// Rounds are replayed back to back through one tracker, as they would be played
+		ReplayHarness harness = new ReplayHarness();
+		for (int pass = 0; pass < passes; pass++)
+		{
+			for (ScriptedRound round : rounds)
+			{
+				harness.replay(round.ticks);
+			}
+		}
+
+		List<RoundSnapshot> replayed = harness.getRounds();
+		assertEquals(distinctRounds * passes, replayed.size());
+		for (int i = 0; i < replayed.size(); i++)
+		{
+			rounds.get(i % distinctRounds).assertMatches(replayed.get(i));
+		}
+	}
+
+	private static String payload(RoundSnapshot round) throws IOException
+	{
+		StringWriter json = new StringWriter();
+		try (JsonWriter out = new JsonWriter(json))
+		{
+			RoundPayloadEncoder.write(out, round, null);
+		}
+		return json.toString();
+	}
+}
@@ -0,0 +1,103 @@
+package com.BaPB;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RoundRecordingTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testReplayMatchesRecording() throws IOException
+	{
+		Random random = new Random(7);
+		ScriptedRound[] rounds = {
+			ScriptedRound.script(random, true, 0),
+			ScriptedRound.script(random, false, 4),
+			ScriptedRound.script(random, true, 10),
+		};
+
+		ReplayHarness live = new ReplayHarness();
+		RoundRecording.Writer writer = new RoundRecording.Writer(1_714_594_215_123L);
+		live.record(writer);
+		for (ScriptedRound round : rounds)
+		{
+			live.replay(round.ticks);
+		}
+		byte[] data = writer.toByteArray();
+
+		ReplayHarness replay = new ReplayHarness();
+		try (RoundRecording.Reader reader = new RoundRecording.Reader(new ByteArrayInputStream(data)))
+		{
+			assertEquals(1_714_594_215_123L, reader.getStartMillis());
+			replay.replay(reader);
+		}
+
+		assertEquals(live.getTickCount(), replay.getTickCount());
+		assertEquals(0, replay.getDetectionMismatches());
+		assertEquals(rounds.length, replay.getRounds().size());
+		for (int i = 0; i < rounds.length; i++)
+		{
+			rounds[i].assertMatches(replay.getRounds().get(i));
+		}
+
+		double bytesPerTick = (double) data.length / writer.getTickCount();
+		assertTrue(String.valueOf(bytesPerTick), bytesPerTick < 4);
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotARecording() throws IOException
+	{
+		new RoundRecording.Reader(new ByteArrayInputStream("{\"format\":\"leech\"}".getBytes()));
+	}
+
+	@Test
+	public void testRecorderKeepsNewestFiles() throws IOException
+	{
+		File directory = folder.newFolder();
+		RoundRecorder recorder = new RoundRecorder(directory, Runnable::run, Long.MAX_VALUE, 3);
+		ReplayHarness harness = new ReplayHarness();
+
+		long[] starts = new long[5];
+		for (int round = 0; round < starts.length; round++)
+		{
+			recorder.startRound();
+			recorder.tick(harness.getTracker());
+			recorder.endRound();
+			recorder.tick(harness.getTracker());
+			// Nothing is written after the round ended
+			recorder.tick(harness.getTracker());
+		}
+		recorder.close();
+
+		File[] files = directory.listFiles();
+		assertEquals(3, files.length);
+		Arrays.sort(files);
+		long last = 0;
+		for (File file : files)
+		{
+			try (RoundRecording.Reader reader = new RoundRecording.Reader(new FileInputStream(file)))
+			{
+				assertTrue(reader.getStartMillis() > last);
+				last = reader.getStartMillis();
+
+				int ticks = 0;
+				while (reader.next())
+				{
+					ticks++;
+				}
+				assertEquals(2, ticks);
+			}
+		}
+	}
+}
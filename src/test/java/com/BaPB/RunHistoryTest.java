@@ -0,0 +1,163 @@
+package com.BaPB;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RunHistoryTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRoundsSurviveReopening() throws IOException
+	{
+		Random random = new Random(16);
+		ReplayHarness harness = new ReplayHarness();
+		ScriptedRound leader = ScriptedRound.script(random, true, 0);
+		ScriptedRound player = ScriptedRound.script(random, false, 3);
+		harness.replay(leader.ticks);
+		harness.replay(player.ticks);
+		RoundSnapshot first = harness.getRounds().get(0);
+		RoundSnapshot second = harness.getRounds().get(1);
+
+		LocalDate today = LocalDate.of(2024, 5, 1);
+		long morning = today.atTime(9, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+		long tomorrow = today.plusDays(1).atTime(9, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+		File directory = new File(folder.getRoot(), "history");
+		RunHistory history = new RunHistory(directory);
+		history.open();
+		history.append(first, leader.role, morning);
+		history.append(second, player.role, tomorrow);
+		history.close();
+
+		history = new RunHistory(directory);
+		history.open();
+		try
+		{
+			assertEquals(2, history.size());
+			assertRow(history, 0, first, leader.role, morning);
+			assertRow(history, 1, second, player.role, tomorrow);
+
+			assertArrayEquals(new int[]{0, 1}, history.find(null, null, null, null));
+			assertArrayEquals(new int[]{0}, history.find(today, today, null, null));
+			assertArrayEquals(new int[]{1}, history.find(today.plusDays(1), null, first.getFormat(), player.role));
+			assertArrayEquals(new int[0], history.find(null, null, "unknown", null));
+		}
+		finally
+		{
+			history.close();
+		}
+	}
+
+	@Test
+	public void testUnsupportedVersionIsMovedAside() throws IOException
+	{
+		File directory = new File(folder.getRoot(), "history");
+		assertTrue(directory.mkdirs());
+		try (RandomAccessFile header = new RandomAccessFile(new File(directory, "header.bin"), "rw"))
+		{
+			header.writeInt(0x42415248);
+			header.writeInt(RunHistory.SCHEMA_VERSION + 1);
+			header.writeInt(7);
+			header.writeInt(0);
+		}
+
+		RunHistory history = new RunHistory(directory);
+		history.open();
+		try
+		{
+			assertEquals(0, history.size());
+		}
+		finally
+		{
+			history.close();
+		}
+
+		File[] aside = folder.getRoot().listFiles((dir, name) -> name.startsWith("history-"));
+		assertEquals(1, aside.length);
+		assertTrue(new File(aside[0], "header.bin").exists());
+		assertFalse(new File(aside[0], "wave_time.col").exists());
+	}
+
+	@Test
+	public void testTornDictionaryLineIsDropped() throws IOException
+	{
+		Random random = new Random(17);
+		ReplayHarness harness = new ReplayHarness();
+		ScriptedRound leader = ScriptedRound.script(random, true, 0);
+		ScriptedRound player = ScriptedRound.script(random, false, 0);
+		harness.replay(leader.ticks);
+		harness.replay(player.ticks);
+
+		File directory = new File(folder.getRoot(), "history");
+		RunHistory history = new RunHistory(directory);
+		history.open();
+		history.append(harness.getRounds().get(0), leader.role, 0);
+		history.close();
+
+		// A crash while the next role was being added
+		try (FileOutputStream dictionary = new FileOutputStream(new File(directory, "dictionary.txt"), true))
+		{
+			dictionary.write("Leech Hea".getBytes(StandardCharsets.UTF_8));
+		}
+
+		history = new RunHistory(directory);
+		history.open();
+		history.append(harness.getRounds().get(1), player.role, 0);
+		history.close();
+
+		history = new RunHistory(directory);
+		history.open();
+		try
+		{
+			assertEquals(2, history.size());
+			assertEquals(leader.role, history.getRole(0));
+			assertEquals(player.role, history.getRole(1));
+			assertArrayEquals(new int[]{1}, history.find(null, null, null, player.role));
+		}
+		finally
+		{
+			history.close();
+		}
+	}
+
+	private static void assertRow(RunHistory history, int row, RoundSnapshot round, String role, long timestamp)
+	{
+		assertEquals(timestamp, history.getTimestamp(row));
+		assertEquals(round.getFormat(), history.getFormat(row));
+		assertEquals(role, history.getRole(row));
+		assertEquals(round.getRoundSeconds(), history.getRoundSeconds(row), 0);
+		assertEquals(round.isScroller(), history.isScroller(row));
+
+		for (int i = 0; i < round.getWaveCount(); i++)
+		{
+			int wave = round.getWaveNumber(i);
+			String at = "wave " + wave;
+			assertTrue(at, history.hasWave(row, wave));
+			assertEquals(at, round.getWaveSeconds(i), history.getWaveSeconds(row, wave), 0);
+			assertEquals(at, round.getQsTicks(i), history.getQsTicks(row, wave));
+			assertEquals(at, round.isGoodPremove(i), history.isGoodPremove(row, wave));
+			assertEquals(at, round.isReset(i), history.isReset(row, wave));
+			assertEquals(at, round.getSpawnX(i), history.getSpawnX(row, wave));
+			assertEquals(at, round.getSpawnY(i), history.getSpawnY(row, wave));
+			assertEquals(at, round.getRangerDeathTime(i), history.getRangerDeathTime(row, wave), 0);
+			assertEquals(at, round.getHealerDeathTime(i), history.getHealerDeathTime(row, wave), 0);
+			assertEquals(at, round.getFighterDeathTime(i), history.getFighterDeathTime(row, wave), 0);
+		}
+		assertEquals(round.getQueenSpawnTime(round.getWaveCount() - 1), history.getQueenSpawnTime(row), 0);
+	}
+}
@@ -0,0 +1,290 @@
+package com.BaPB;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.coords.WorldPoint;
+import net.runelite.api.gameval.ItemID;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The ticks of one scripted round and what the tracker should make of them.
+ */
+class ScriptedRound
+{
+	// South west corner of the lobby before each wave
+	private static final int[] LOBBY_X = {0, 2576, 2584, 2595, 2603, 2576, 2584, 2595, 2603, 2576, 2584};
+	private static final int[] LOBBY_Y = {0, 5291, 5291, 5291, 5291, 5281, 5281, 5281, 5281, 5271, 5271};
+
+	// Premove is judged on the first tick of a wave, by whether the player is still south of the lobbies
+	private static final WorldPoint PREMOVED = new WorldPoint(2600, 5260, 0);
+	private static final WorldPoint ARENA = new WorldPoint(2600, 5330, 0);
+
+	private static final int[] HORN = {ItemID.BARBASSAULT_ATT_HORN_01};
+	private static final int[] ROLE_WIDGET = {RoundTracker.BA_ATTACKER_GROUP_ID};
+
+	private static final int ATTACKER = 20561;
+	private static final int DEFENDER = 20566;
+	private static final int COLLECTOR = 20563;
+	private static final int HEALER = 20569;
+	private static final int[] ICONS = {ATTACKER, DEFENDER, COLLECTOR, HEALER};
+
+	private static final String QUEEN_SPAWN = "The Queen has arrived and you can no longer use the horn of glory!";
+
+	final List<ReplayHarness.Tick> ticks = new ArrayList<>();
+	final String format;
+	final boolean leader;
+	final Map<String, String> team = new HashMap<>();
+	String role;
+
+	final int[] waveTicks = new int[Timers.MAX_WAVE + 1];
+	final int[] qsTicks = new int[Timers.MAX_WAVE + 1];
+	final boolean[] premove = new boolean[Timers.MAX_WAVE + 2];
+	final boolean[] reset = new boolean[Timers.MAX_WAVE + 1];
+	final int[] spawnX = new int[Timers.MAX_WAVE + 1];
+	final int[] spawnY = new int[Timers.MAX_WAVE + 1];
+	final double[] rangerDeath = new double[Timers.MAX_WAVE + 1];
+	final double[] healerDeath = new double[Timers.MAX_WAVE + 1];
+	double queenSpawn;
+	int roundTicks;
+
+	ScriptedRound(String format, boolean leader)
+	{
+		this.format = format;
+		this.leader = leader;
+		Arrays.fill(spawnX, RoundSnapshot.NO_SPAWN);
+		Arrays.fill(spawnY, RoundSnapshot.NO_SPAWN);
+		Arrays.fill(rangerDeath, Double.NaN);
+		Arrays.fill(healerDeath, Double.NaN);
+	}
+
+	static ScriptedRound script(Random random, boolean leader, int resetWave)
+	{
+		return script(random, "leech", leader, resetWave);
+	}
+
+	/**
+	 * Scripts a leech or duo_heal round with random wave and lobby lengths, premoves, spawn
+	 * points and Penance death times, optionally failing a wave once so it is played twice.
+	 */
+	static ScriptedRound script(Random random, String format, boolean leader, int resetWave)
+	{
+		ScriptedRound round = new ScriptedRound(format, leader);
+
+		// Lobby 1, where the scroll is read
+		ReplayHarness.Tick scroll = lobby(1, 3, 3);
+		switch (format)
+		{
+			case "leech":
+				scroll.scroll = leechScroll(round, random);
+				break;
+			case "duo_heal":
+				scroll.scroll = duoHealScroll(round);
+				break;
+			default:
+				throw new IllegalArgumentException(format);
+		}
+		round.ticks.add(scroll);
+		for (int t = 0; t < 4; t++)
+		{
+			round.ticks.add(lobby(1, 3, 3));
+		}
+
+		for (int wave = 1; wave <= Timers.MAX_WAVE; wave++)
+		{
+			if (wave > 1)
+			{
+				queue(round, random, wave);
+			}
+			if (wave == resetWave)
+			{
+				wave(round, random, wave, false);
+				round.reset[wave] = true;
+				queue(round, random, wave);
+			}
+			wave(round, random, wave, true);
+		}
+
+		ReplayHarness.Tick complete = waveTick(ARENA);
+		complete.waveComplete = "Queen killed<br>5";
+		round.ticks.add(complete);
+		for (int t = 0; t < 3; t++)
+		{
+			round.ticks.add(waveTick(ARENA));
+		}
+		return round;
+	}
+
+	private static TeamScanner.Scan leechScroll(ScriptedRound round, Random random)
+	{
+		// Attacker, collector, healer, the leecher with any role and defender
+		int[] icons = {ATTACKER, COLLECTOR, HEALER, ICONS[random.nextInt(ICONS.length)], DEFENDER};
+		int localSlot = round.leader ? 0 : 2;
+		String[] names = ReplayHarness.scrollNames(localSlot);
+
+		for (int slot = 0; slot < TeamScanner.PLAYERS; slot++)
+		{
+			if (slot != 3)
+			{
+				round.team.put(names[slot], Role.fromIcon(icons[slot]).getKey());
+			}
+		}
+		round.role = "Leech " + Role.fromIcon(icons[localSlot]).getKey();
+		return new TeamScanner.Scan(names, icons, localSlot);
+	}
+
+	private static TeamScanner.Scan duoHealScroll(ScriptedRound round)
+	{
+		// Attacker, both healers, collector and defender
+		int[] icons = {ATTACKER, HEALER, HEALER, COLLECTOR, DEFENDER};
+		String[] teamRoles = {"Attacker", "2nd Healer", "Main Healer", "Collector", "Defender"};
+		int localSlot = round.leader ? 0 : 2;
+		String[] names = ReplayHarness.scrollNames(localSlot);
+
+		for (int slot = 0; slot < TeamScanner.PLAYERS; slot++)
+		{
+			round.team.put(names[slot], teamRoles[slot]);
+		}
+		round.role = "DH " + teamRoles[localSlot];
+		return new TeamScanner.Scan(names, icons, localSlot);
+	}
+
+	// The lobby before a wave, entered at a random spawn point
+	private static void queue(ScriptedRound round, Random random, int wave)
+	{
+		int spawnX = random.nextInt(8);
+		int spawnY = random.nextInt(8);
+		int ticks = 1 + random.nextInt(30);
+
+		ReplayHarness.Tick first = lobby(wave, spawnX, spawnY);
+		first.waveComplete = "Wave " + (wave - 1) + " complete";
+		round.ticks.add(first);
+		for (int t = 1; t < ticks; t++)
+		{
+			round.ticks.add(lobby(wave, random.nextInt(8), random.nextInt(8)));
+		}
+
+		round.qsTicks[wave] += ticks;
+		round.roundTicks += ticks;
+		if (round.leader)
+		{
+			round.spawnX[wave] = spawnX;
+			round.spawnY[wave] = spawnY;
+		}
+	}
+
+	private static void wave(ScriptedRound round, Random random, int wave, boolean last)
+	{
+		int ticks = 20 + random.nextInt(100);
+		boolean premove = random.nextBoolean();
+		// Deaths come after the wave start message has been seen by at least one tick
+		int rangerTick = 1 + random.nextInt(ticks - 1);
+		int healerTick = 1 + random.nextInt(ticks - 1);
+		int queenTick = 1 + random.nextInt(ticks - 1);
+
+		for (int t = 0; t < ticks; t++)
+		{
+			ReplayHarness.Tick tick = waveTick(t == 0 && premove ? PREMOVED : ARENA);
+			if (t == 0)
+			{
+				tick.chat.add(new ReplayHarness.Chat(ChatMessageType.GAMEMESSAGE, "---- Wave: " + wave + " ----"));
+			}
+			if (t == rangerTick)
+			{
+				String time = deathTime(random);
+				// The ba minigame plugin appends the time to the message node only
+				tick.chat.add(new ReplayHarness.Chat(ChatMessageType.GAMEMESSAGE, "All of the Penance Rangers have been killed!",
+					"All of the Penance Rangers have been killed!<col=ef1020> " + time + "s"));
+				round.rangerDeath[wave] = Double.parseDouble(time);
+			}
+			if (t == healerTick)
+			{
+				String time = deathTime(random);
+				tick.chat.add(new ReplayHarness.Chat(ChatMessageType.WELCOME, "All of the Penance Healers have been killed!",
+					"All of the Penance Healers have been killed! " + time + "s"));
+				round.healerDeath[wave] = Double.parseDouble(time);
+			}
+			if (wave == Timers.MAX_WAVE && last && t == queenTick)
+			{
+				tick.chat.add(new ReplayHarness.Chat(ChatMessageType.GAMEMESSAGE, QUEEN_SPAWN));
+				round.queenSpawn = (round.waveTicks[wave] + t) * 600 / 1000.0;
+			}
+			round.ticks.add(tick);
+		}
+
+		round.waveTicks[wave] += ticks;
+		round.roundTicks += ticks;
+		// Whether this wave was premoved is credited to the next one
+		round.premove[wave + 1] = premove;
+	}
+
+	private static String deathTime(Random random)
+	{
+		return String.format(Locale.ROOT, "%.1f", random.nextInt(120) * 0.6);
+	}
+
+	private static ReplayHarness.Tick lobby(int lobby, int x, int y)
+	{
+		ReplayHarness.Tick tick = new ReplayHarness.Tick();
+		tick.position = new WorldPoint(LOBBY_X[lobby] + x, LOBBY_Y[lobby] + y, 0);
+		return tick;
+	}
+
+	private static ReplayHarness.Tick waveTick(WorldPoint position)
+	{
+		ReplayHarness.Tick tick = new ReplayHarness.Tick();
+		tick.position = position;
+		tick.instanced = true;
+		tick.inGameBit = 1;
+		tick.inventory = HORN;
+		tick.roleWidgets = ROLE_WIDGET;
+		return tick;
+	}
+
+	double roundSeconds()
+	{
+		// The round time is reported one tick shorter for players and two for the scroller
+		return Math.max(0, roundTicks - (leader ? 2 : 1)) * 600 / 1000.0;
+	}
+
+	/**
+	 * Asserts that the tracker made this round of the ticks.
+	 */
+	void assertMatches(RoundSnapshot actual)
+	{
+		assertEquals(format, actual.getFormat());
+		assertEquals(leader, actual.isScroller());
+		assertEquals(ReplayHarness.LOCAL_PLAYER, actual.getSubmittedBy());
+		assertEquals(roundSeconds(), actual.getRoundSeconds(), 0);
+
+		Map<String, String> players = new HashMap<>();
+		for (int i = 0; i < actual.getPlayerCount(); i++)
+		{
+			players.put(actual.getPlayerName(i), actual.getPlayerRole(i));
+		}
+		assertEquals(team, players);
+
+		assertEquals(Timers.MAX_WAVE, actual.getWaveCount());
+		for (int i = 0; i < actual.getWaveCount(); i++)
+		{
+			int wave = i + 1;
+			String at = "wave " + wave;
+			assertEquals(at, wave, actual.getWaveNumber(i));
+			assertEquals(at, waveTicks[wave] * 600 / 1000.0, actual.getWaveSeconds(i), 0);
+			assertEquals(at, qsTicks[wave], actual.getQsTicks(i));
+			assertEquals(at, premove[wave], actual.isGoodPremove(i));
+			assertEquals(at, reset[wave], actual.isReset(i));
+			assertEquals(at, spawnX[wave], actual.getSpawnX(i));
+			assertEquals(at, spawnY[wave], actual.getSpawnY(i));
+			assertEquals(at, rangerDeath[wave], actual.getRangerDeathTime(i), 0);
+			assertEquals(at, healerDeath[wave], actual.getHealerDeathTime(i), 0);
+			assertEquals(at, Double.NaN, actual.getFighterDeathTime(i), 0);
+			assertEquals(at, wave == Timers.MAX_WAVE ? queenSpawn : Double.NaN, actual.getQueenSpawnTime(i), 0);
+		}
+	}
+}
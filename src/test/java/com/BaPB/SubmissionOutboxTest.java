@@ -0,0 +1,150 @@
+package com.BaPB;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SubmissionOutboxTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testPendingRoundsAreReplayed() throws IOException
+	{
+		File file = new File(folder.getRoot(), "outbox.log");
+		SubmissionOutbox outbox = open(file, 10);
+		long first = outbox.append("Player", payload(1)).getId();
+		outbox.append("Player", payload(2));
+		outbox.append("Other Player", payload(3));
+		outbox.acknowledge(first);
+		outbox.close();
+
+		outbox = open(file, 10);
+		assertPending(outbox, 2, 3);
+		assertEquals("Other Player", outbox.peek(10).get(1).getSubmittedBy());
+		// Ids keep counting up across restarts
+		assertTrue(outbox.append("Player", payload(4)).getId() > outbox.peek(1).get(0).getId());
+		outbox.close();
+	}
+
+	@Test
+	public void testTornRecordIsSkipped() throws IOException
+	{
+		File file = new File(folder.getRoot(), "outbox.log");
+		SubmissionOutbox outbox = open(file, 10);
+		outbox.append("Player", payload(1));
+		outbox.close();
+
+		// A crash in the middle of journaling the second round
+		try (FileOutputStream out = new FileOutputStream(file, true))
+		{
+			out.write("A\t2\tPlayer\t{\"round\":".getBytes(StandardCharsets.UTF_8));
+		}
+
+		outbox = open(file, 10);
+		assertPending(outbox, 1);
+		outbox.append("Player", payload(3));
+		outbox.close();
+
+		assertPending(open(file, 10), 1, 3);
+	}
+
+	@Test
+	public void testFullOutboxDropsOldest() throws IOException
+	{
+		File file = new File(folder.getRoot(), "outbox.log");
+		SubmissionOutbox outbox = open(file, 3);
+		for (int round = 1; round <= 5; round++)
+		{
+			outbox.append("Player", payload(round));
+		}
+		assertPending(outbox, 3, 4, 5);
+		outbox.close();
+
+		assertPending(open(file, 3), 3, 4, 5);
+		// A smaller cap drops the oldest on open
+		assertPending(open(file, 2), 4, 5);
+	}
+
+	@Test
+	public void testAcknowledgedRoundsAreCompactedAway() throws IOException
+	{
+		File file = new File(folder.getRoot(), "outbox.log");
+		SubmissionOutbox outbox = open(file, 100);
+		for (int round = 1; round <= 70; round++)
+		{
+			outbox.append("Player", payload(round));
+		}
+		for (SubmissionOutbox.Entry entry : outbox.peek(65))
+		{
+			outbox.acknowledge(entry.getId());
+		}
+		outbox.append("Player", payload(71));
+		outbox.close();
+
+		// Compacted after the 64th ACK, down to the 6 pending rounds, then one ACK and one round
+		assertEquals(8, Files.readAllLines(file.toPath()).size());
+		assertPending(open(file, 100), 66, 67, 68, 69, 70, 71);
+	}
+
+	@Test
+	public void testFailedCompactionKeepsJournaling() throws IOException
+	{
+		File file = new File(folder.getRoot(), "outbox.log");
+		SubmissionOutbox outbox = open(file, 100);
+		outbox.append("Player", payload(1));
+		outbox.close();
+
+		// Nothing can be written where the compacted journal goes
+		File tmp = new File(file.getPath() + ".tmp");
+		assertTrue(tmp.mkdir());
+
+		outbox = open(file, 100);
+		for (int round = 2; round <= 70; round++)
+		{
+			outbox.append("Player", payload(round));
+		}
+		for (SubmissionOutbox.Entry entry : outbox.peek(65))
+		{
+			outbox.acknowledge(entry.getId());
+		}
+		outbox.append("Player", payload(71));
+		assertPending(outbox, 66, 67, 68, 69, 70, 71);
+		outbox.close();
+
+		assertTrue(tmp.delete());
+		assertPending(open(file, 100), 66, 67, 68, 69, 70, 71);
+	}
+
+	private static SubmissionOutbox open(File file, int maxEntries) throws IOException
+	{
+		SubmissionOutbox outbox = new SubmissionOutbox(file, maxEntries);
+		outbox.open();
+		return outbox;
+	}
+
+	private static byte[] payload(int round)
+	{
+		return ("{\"round\":" + round + "}").getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void assertPending(SubmissionOutbox outbox, int... rounds)
+	{
+		List<SubmissionOutbox.Entry> entries = outbox.peek(Integer.MAX_VALUE);
+		assertEquals(rounds.length, outbox.size());
+		assertEquals(rounds.length, entries.size());
+		for (int i = 0; i < rounds.length; i++)
+		{
+			assertEquals(new String(payload(rounds[i]), StandardCharsets.UTF_8), new String(entries.get(i).getPayload(), StandardCharsets.UTF_8));
+		}
+	}
+}